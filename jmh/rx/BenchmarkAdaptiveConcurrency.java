@@ -0,0 +1,98 @@
+package rx;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.google.common.base.Ticker;
+
+import util.AbstractBenchmark;
+import util.AdaptiveConcurrencyLimiter;
+import util.LatencyHistogram;
+import util.LatencyModel;
+import util.SimulatedServer;
+
+/**
+ * Scenarios from {@link TestAdaptiveConcurrencyLimiter}: a fan-out of <code>calls</code> calls, the repeatingCount of
+ * the scenario, to a server of 64 workers, with the adaptive limiter against a fixed <code>maxConcurrent</code>.
+ *
+ * The sampled time is the one of the whole fan-out.  The p99 of the calls themselves and the limit the adaptive limiter
+ * settled on are reported as the <code>callP99Millis</code> and <code>limit</code> counters: values at the end of the
+ * iteration rather than totals, read them with one benchmark thread.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BenchmarkAdaptiveConcurrency extends AbstractBenchmark {
+
+    private static final int WORKERS = 64;
+
+    @Param({"1000", "10000", "100000"})
+    public int calls;
+
+    @Param({"adaptive", "16", "256"})
+    public String maxConcurrent;
+
+    private SimulatedServer server;
+    private AdaptiveConcurrencyLimiter limiter;
+    private LatencyHistogram callLatency;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Gauges {
+        public double callP99Millis;
+        public int limit;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            callP99Millis = 0;
+            limit = 0;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        server = new SimulatedServer(WORKERS, LatencyModel.constant(1));
+        limiter = new AdaptiveConcurrencyLimiter(WORKERS / 4, 1, WORKERS * 16);
+        callLatency = new LatencyHistogram();
+    }
+
+    @Benchmark
+    public List<UUID> fanOut(Gauges gauges) {
+        List<UUID> uuids = fanOut();
+        gauges.callP99Millis = callLatency.percentile(99) / 1e6;
+        gauges.limit = maxConcurrent.equals("adaptive") ? limiter.limit() : Integer.parseInt(maxConcurrent);
+        return uuids;
+    }
+
+    private List<UUID> fanOut() {
+        Observable<Integer> requests = Observable.range(0, calls);
+
+        Observable<UUID> responses = maxConcurrent.equals("adaptive")
+                ? requests.compose(limiter.flatMap(index -> timedCall()))
+                : requests.flatMap(index -> timedCall(), Integer.parseInt(maxConcurrent));
+
+        return responses
+                .toList()
+                .toBlocking()
+                .single();
+    }
+
+    private Observable<UUID> timedCall() {
+        return Observable.defer(() -> {
+            long start = Ticker.systemTicker().read();
+            return server.call().doOnNext(uuid -> callLatency.record(Ticker.systemTicker().read() - start));
+        });
+    }
+
+}
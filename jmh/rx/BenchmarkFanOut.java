@@ -0,0 +1,91 @@
+package rx;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.google.common.collect.Lists;
+
+import rx.schedulers.Schedulers;
+import util.AbstractBenchmark;
+import util.FanOut;
+
+/**
+ * Scenario from {@link TestFanOut}: a merge of <code>sources</code> inner sources, 64 at a time, either built into a
+ * <code>LinkedList</code> first as in <code>testDefer_Repeating_Threaded_Observer_Async</code> or created on demand.
+ *
+ * The peak of inner sources alive at once is reported as the <code>peakAlive</code> counter: all of them for the list,
+ * at most the concurrency plus the prefetch of the merge for the fan-out.  With the GC profiler, gc.alloc.rate.norm divided by
+ * <code>sources</code> is the cost of one inner source, and the count of GCs shows the old generation filling with the list.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BenchmarkFanOut extends AbstractBenchmark {
+
+    private static final int MAX_CONCURRENCY = 64;
+
+    @Param({"50", "1000", "100000", "1000000"})
+    public int sources;
+
+    private final AtomicInteger alive = new AtomicInteger();
+    private final AtomicInteger peakAlive = new AtomicInteger();
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Gauges {
+        public int peakAlive;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            peakAlive = 0;
+        }
+    }
+
+    private Observable<UUID> source() {
+        peakAlive.accumulateAndGet(alive.incrementAndGet(), Math::max);
+        return Observable.fromCallable(() -> callSlowService())
+                .subscribeOn(Schedulers.computation())
+                .doOnTerminate(alive::decrementAndGet);
+    }
+
+    private long record(Gauges gauges, long count) {
+        gauges.peakAlive = Math.max(gauges.peakAlive, peakAlive.getAndSet(0));
+        return count;
+    }
+
+    @Benchmark
+    public long linkedList_Merge(Gauges gauges) {
+        List<Observable<UUID>> observables = Lists.newLinkedList();
+        for (int i = 0; i < sources; i++) {
+            observables.add(source());
+        }
+
+        return record(gauges, Observable.merge(Observable.from(observables), MAX_CONCURRENCY)
+                .countLong()
+                .toBlocking()
+                .single());
+    }
+
+    @Benchmark
+    public long lazy_FanOut(Gauges gauges) {
+        return record(gauges, FanOut.range(sources, index -> source())
+                .maxConcurrency(MAX_CONCURRENCY)
+                .build()
+                .countLong()
+                .toBlocking()
+                .single());
+    }
+
+}
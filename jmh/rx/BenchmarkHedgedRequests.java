@@ -0,0 +1,90 @@
+package rx;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import util.AbstractBenchmark;
+import util.HedgedRequests;
+import util.LatencyHistogram;
+import util.LatencyModel;
+
+/**
+ * Scenarios from {@link TestHedgedRequests}: p99 of a heavy-tailed service with and without hedging, against the
+ * extra load.  Compare the sampled p99 of the two, and the <code>backendCalls</code> counter to the operations count
+ * for the added request volume.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BenchmarkHedgedRequests extends AbstractBenchmark {
+
+    @Param("1")
+    public long tailScaleInMillis;
+
+    @Param({"90", "95"})
+    public double hedgePercentile;
+
+    @Param("0.2")
+    public double budget;
+
+    private final AtomicLong backendCalls = new AtomicLong();
+    private Observable<UUID> service;
+    private HedgedRequests hedging;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Load {
+        public long backendCalls;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            backendCalls = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        LatencyModel latency = LatencyModel.pareto(tailScaleInMillis, 1.5, tailScaleInMillis * 50, new Random(42));
+
+        // the latencies the service is known for
+        LatencyHistogram observed = new LatencyHistogram();
+        for (int i = 0; i < 10_000; i++) {
+            observed.record(TimeUnit.MICROSECONDS.toNanos(latency.nextMicros()));
+        }
+
+        service = callServiceAsync(latency).doOnSubscribe(backendCalls::incrementAndGet);
+        hedging = new HedgedRequests(observed, hedgePercentile, tailScaleInMillis, TimeUnit.MILLISECONDS, budget);
+    }
+
+    @Benchmark
+    public UUID unhedged(Load load) {
+        UUID uuid = service
+                .toBlocking()
+                .single();
+        load.backendCalls += backendCalls.getAndSet(0);
+        return uuid;
+    }
+
+    @Benchmark
+    public UUID hedged(Load load) {
+        UUID uuid = service
+                .compose(hedging.hedged())
+                .toBlocking()
+                .single();
+        load.backendCalls += backendCalls.getAndSet(0);
+        return uuid;
+    }
+
+}
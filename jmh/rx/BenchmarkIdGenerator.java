@@ -0,0 +1,54 @@
+package rx;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Threads;
+
+import util.AbstractBenchmark;
+import util.IdGenerator;
+
+/**
+ * Cost of one id from each {@link IdGenerator} as more threads ask for ids at once.  A time that grows with the thread
+ * count is contention: the shared <code>SecureRandom</code> of <code>secureRandom</code>, the shared counter of
+ * <code>timeOrdered</code>.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BenchmarkIdGenerator extends AbstractBenchmark {
+
+    @Param({"secureRandom", "threadLocalRandom", "timeOrdered", "counterBlocks"})
+    public String generator;
+
+    private IdGenerator source;
+
+    @Setup
+    public void setup() {
+        source = IdGenerator.of(generator);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public UUID threads_1() {
+        return source.next();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public UUID threads_8() {
+        return source.next();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public UUID threads_64() {
+        return source.next();
+    }
+
+}
@@ -0,0 +1,49 @@
+package rx;
+
+import java.util.UUID;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.infra.Blackhole;
+
+import util.AbstractBenchmark;
+
+/**
+ * Scenarios from {@link TestObservableBlocking}: fromCallable vs defer, and toBlocking().single() vs subscribe().
+ */
+public class BenchmarkObservableBlocking extends AbstractBenchmark {
+
+    @Benchmark
+    public UUID fromCallable_ToBlockingSingle() {
+        return Observable.fromCallable(() -> callSlowService())
+                .toBlocking()
+                .single();
+    }
+
+    @Benchmark
+    public UUID defer_ToBlockingSingle() {
+        return Observable.defer(() -> Observable.fromCallable(() -> callSlowService()))
+                .toBlocking()
+                .single();
+    }
+
+    @Benchmark
+    public void fromCallable_Subscribe(Blackhole blackhole) {
+        Observable.fromCallable(() -> callSlowService())
+                .subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    public void defer_Subscribe(Blackhole blackhole) {
+        Observable.defer(() -> Observable.fromCallable(() -> callSlowService()))
+                .subscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    public String fromCallable_Map_ToBlockingSingle() {
+        return Observable.fromCallable(() -> callSlowService())
+                .map(uuid -> uuid.toString())
+                .toBlocking()
+                .single();
+    }
+
+}
@@ -0,0 +1,72 @@
+package rx;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Setup;
+
+import util.AbstractBenchmark;
+import util.ObservableCache;
+
+/**
+ * Scenarios from {@link TestObservableCache}: a repeated subscription served from the cache against the uncached call.
+ *
+ * <code>miss_And_Insert</code> writes a new key into a full cache, and <code>miss_Baseline</code> runs the same chain,
+ * defer and doOnNext included, without the cache.  The difference of their normalized allocation rates from the GC
+ * profiler (gc.alloc.rate.norm) is the memory of one entry with its boxed key: the UUID and the subscription are
+ * allocated by both.
+ */
+public class BenchmarkObservableCache extends AbstractBenchmark {
+
+    private static final int MAXIMUM_SIZE = 10_000;
+
+    private ObservableCache<Integer, UUID> cache;
+    private Observable<UUID> uncached;
+    private Observable<UUID> cached;
+    private int nextKey;
+    private volatile UUID last;
+
+    @Setup
+    public void setup() {
+        cache = new ObservableCache<>(MAXIMUM_SIZE, 1, TimeUnit.HOURS);
+        uncached = Observable.fromCallable(() -> callSlowService());
+        cached = uncached.compose(cache.cached(-1));
+
+        for (int key = 0; key < MAXIMUM_SIZE; key++) {
+            uncached.compose(cache.cached(key)).toBlocking().single();
+        }
+        nextKey = MAXIMUM_SIZE;
+    }
+
+    @Benchmark
+    public UUID uncached() {
+        return uncached
+                .toBlocking()
+                .single();
+    }
+
+    @Benchmark
+    public UUID hit() {
+        return cached
+                .toBlocking()
+                .single();
+    }
+
+    @Benchmark
+    public UUID miss_Baseline() {
+        return uncached
+                .compose(source -> Observable.defer(() -> source.doOnNext(result -> last = result)))
+                .toBlocking()
+                .single();
+    }
+
+    @Benchmark
+    public UUID miss_And_Insert() {
+        return uncached
+                .compose(cache.cached(nextKey++))
+                .toBlocking()
+                .single();
+    }
+
+}
@@ -0,0 +1,53 @@
+package rx;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import rx.schedulers.Schedulers;
+import util.AbstractBenchmark;
+
+/**
+ * Scenarios from {@link TestObservableFuture}: bridging a future, with and without a scheduler and a timeout.
+ *
+ * The future is completed from the io() scheduler so the bridge has to wait for it.
+ */
+public class BenchmarkObservableFuture extends AbstractBenchmark {
+
+    @Benchmark
+    public UUID from_Future() {
+        return Observable.from(completeInBackground())
+                .toBlocking()
+                .single();
+    }
+
+    @Benchmark
+    public UUID from_Future_On_Scheduler() {
+        return Observable.from(completeInBackground(), Schedulers.io())
+                .toBlocking()
+                .single();
+    }
+
+    @Benchmark
+    public UUID from_Future_Timeout() {
+        return Observable.from(completeInBackground())
+                .timeout(1, TimeUnit.SECONDS)
+                .toBlocking()
+                .single();
+    }
+
+    private CompletableFuture<UUID> completeInBackground() {
+        CompletableFuture<UUID> future = new CompletableFuture<>();
+
+        Scheduler.Worker worker = Schedulers.io().createWorker();
+        worker.schedule(() -> {
+            future.complete(callSlowService());
+            worker.unsubscribe();
+        });
+
+        return future;
+    }
+
+}
@@ -0,0 +1,49 @@
+package rx;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import rx.schedulers.Schedulers;
+import util.AbstractBenchmark;
+
+/**
+ * Scenarios from {@link TestObservableRepeating}: sequential repeat vs the merge fan-out.
+ */
+public class BenchmarkObservableRepeating extends AbstractBenchmark {
+
+    @Benchmark
+    public List<String> fromCallable_Repeat_ToList() {
+        return Observable.fromCallable(() -> callSlowService())
+                .repeat(repeatingCount)
+                .map(uuid -> uuid.toString())
+                .toList()
+                .toBlocking()
+                .single();
+    }
+
+    @Benchmark
+    public List<String> defer_Repeat_Threaded_ToList() {
+        return Observable.defer(() -> Observable.fromCallable(() -> callSlowService())
+                    .subscribeOn(Schedulers.io()))
+                .repeat(repeatingCount)
+                .map(uuid -> uuid.toString())
+                .toList()
+                .toBlocking()
+                .single();
+    }
+
+    @Benchmark
+    public List<String> merge_FanOut_ToList() {
+        Observable<UUID> slow = Observable.fromCallable(() -> callSlowService())
+                .subscribeOn(Schedulers.io());
+
+        return Observable.merge(Observable.range(0, repeatingCount).map(index -> slow))
+                .map(uuid -> uuid.toString())
+                .toList()
+                .toBlocking()
+                .single();
+    }
+
+}
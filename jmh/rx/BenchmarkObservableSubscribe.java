@@ -0,0 +1,59 @@
+package rx;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.infra.Blackhole;
+
+import rx.schedulers.Schedulers;
+import util.AbstractBenchmark;
+
+/**
+ * Scenarios from {@link TestObservableSubscribe}: subscribeOn vs observeOn on the io() scheduler.
+ *
+ * The threaded subscriptions are joined so each operation measures one complete hop.
+ */
+public class BenchmarkObservableSubscribe extends AbstractBenchmark {
+
+    @Benchmark
+    public UUID subscribeOn_ToBlockingSingle() {
+        return Observable.fromCallable(() -> callSlowService())
+                .subscribeOn(Schedulers.io())
+                .toBlocking()
+                .single();
+    }
+
+    @Benchmark
+    public UUID observeOn_ToBlockingSingle() {
+        return Observable.fromCallable(() -> callSlowService())
+                .observeOn(Schedulers.io())
+                .toBlocking()
+                .single();
+    }
+
+    @Benchmark
+    public void subscribeOn_Subscribe(Blackhole blackhole) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+
+        Observable.fromCallable(() -> callSlowService())
+                .subscribeOn(Schedulers.io())
+                .doAfterTerminate(latch::countDown)
+                .subscribe(blackhole::consume);
+
+        latch.await();
+    }
+
+    @Benchmark
+    public void observeOn_Subscribe(Blackhole blackhole) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+
+        Observable.fromCallable(() -> callSlowService())
+                .observeOn(Schedulers.io())
+                .doAfterTerminate(latch::countDown)
+                .subscribe(blackhole::consume);
+
+        latch.await();
+    }
+
+}
@@ -0,0 +1,88 @@
+package rx;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+import rx.schedulers.Schedulers;
+import util.AbstractBenchmark;
+import util.FanOut;
+import util.LatencyModel;
+
+/**
+ * Scenario from {@link TestOrderedMerge}: <code>sources</code> calls, 64 at a time, merged as they answer or kept in the
+ * order of the calls, by {@link util.OrderedMerge} or by RxJava's <code>concatMapEager</code>, whose per source queues
+ * are unbounded.  <code>concat</code> is the ordering done by calling one after the other.
+ *
+ * With the default <code>speedInMillis</code> of 0 the calls run on computation() and answer at once, which measures
+ * the reordering itself; with <code>-p speedInMillis=1</code> they are timers of 0 to 2 ms, answering out of order, and
+ * the ordered merges should stay close to <code>merge</code> while <code>concat</code> takes the sum of the latencies.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BenchmarkOrderedMerge extends AbstractBenchmark {
+
+    private static final int MAX_CONCURRENCY = 64;
+
+    @Param({"1000", "100000"})
+    public int sources;
+
+    private Observable<UUID> call;
+
+    @Setup
+    public void setup() {
+        if (speedInMillis == 0) {
+            call = Observable.fromCallable(() -> callSlowService())
+                    .subscribeOn(Schedulers.computation());
+        } else {
+            call = callServiceAsync(LatencyModel.uniform(0, speedInMillis * 2, new Random(42)));
+        }
+    }
+
+    @Benchmark
+    public long merge() {
+        return FanOut.range(sources, index -> call)
+                .maxConcurrency(MAX_CONCURRENCY)
+                .build()
+                .countLong()
+                .toBlocking()
+                .single();
+    }
+
+    @Benchmark
+    public long ordered_Merge() {
+        return FanOut.range(sources, index -> call)
+                .maxConcurrency(MAX_CONCURRENCY)
+                .ordered()
+                .build()
+                .countLong()
+                .toBlocking()
+                .single();
+    }
+
+    @Benchmark
+    public long concatMapEager() {
+        return Observable.range(0, sources)
+                .concatMapEager(index -> call, 16, MAX_CONCURRENCY)
+                .countLong()
+                .toBlocking()
+                .single();
+    }
+
+    @Benchmark
+    public long concat() {
+        return Observable.range(0, sources)
+                .concatMap(index -> call)
+                .countLong()
+                .toBlocking()
+                .single();
+    }
+
+}
@@ -0,0 +1,59 @@
+package rx;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Threads;
+
+import rx.schedulers.Schedulers;
+import util.AbstractBenchmark;
+import util.RateLimiter;
+
+/**
+ * Overhead of {@link RateLimiter} on calls fanned out to io() threads, with a rate high enough that no call waits:
+ * what is left is the compare and set on the bucket, contended by every io() thread, and the deferred subscription.
+ *
+ * <code>tryAcquire_Contended</code> takes permits from 8 threads at once, the bucket alone.
+ */
+public class BenchmarkRateLimiter extends AbstractBenchmark {
+
+    private RateLimiter limiter;
+    private Observable<UUID> call;
+
+    @Setup
+    public void setup() {
+        limiter = new RateLimiter(1_000_000_000, 1, TimeUnit.SECONDS, 1_000_000);
+        call = Observable.fromCallable(() -> callSlowService());
+    }
+
+    @Benchmark
+    public List<UUID> unlimited() {
+        return Observable.range(0, repeatingCount)
+                .flatMap(index -> call
+                        .subscribeOn(Schedulers.io()))
+                .toList()
+                .toBlocking()
+                .single();
+    }
+
+    @Benchmark
+    public List<UUID> limited() {
+        return Observable.range(0, repeatingCount)
+                .flatMap(index -> call
+                        .compose(limiter.protect())
+                        .subscribeOn(Schedulers.io()))
+                .toList()
+                .toBlocking()
+                .single();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean tryAcquire_Contended() {
+        return limiter.tryAcquire();
+    }
+
+}
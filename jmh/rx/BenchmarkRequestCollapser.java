@@ -0,0 +1,51 @@
+package rx;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+import rx.schedulers.Schedulers;
+import util.AbstractBenchmark;
+import util.RequestCollapser;
+
+/**
+ * Throughput of <code>repeatingCount</code> calls against the size of the batches they are collapsed into,
+ * a batch size of 1 being one round-trip per call, and the window a batch that is not full waits for: when
+ * <code>repeatingCount</code> is not a multiple of the batch size, the last batch of every operation waits for it.
+ *
+ * Run with <code>-p speedInMillis=1 -p speedPerBulkItemInMicros=100</code> to see the round-trips saved against
+ * the per-key cost a batch still pays, the default shows the cost of the collapsing.
+ */
+public class BenchmarkRequestCollapser extends AbstractBenchmark {
+
+    @Param({"1", "5", "10", "16", "50"})
+    public int batchSize;
+
+    /**
+     * How long a batch that is not full waits for more calls, in microseconds.
+     */
+    @Param({"100", "1000", "10000"})
+    public long windowInMicros;
+
+    private RequestCollapser<Integer, UUID> collapser;
+
+    @Setup
+    public void setup() {
+        collapser = new RequestCollapser<>(keys -> Observable.fromCallable(() -> callSlowServiceBulk(keys))
+                .subscribeOn(Schedulers.io()), batchSize, windowInMicros, TimeUnit.MICROSECONDS);
+    }
+
+    @Benchmark
+    public List<UUID> collapsed() {
+        return Observable.range(0, repeatingCount)
+                .flatMap(index -> collapser.get(index))
+                .toList()
+                .toBlocking()
+                .single();
+    }
+
+}
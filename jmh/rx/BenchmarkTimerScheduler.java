@@ -0,0 +1,61 @@
+package rx;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import rx.schedulers.Schedulers;
+import util.AbstractBenchmark;
+import util.HashedWheelScheduler;
+
+/**
+ * Cost of scheduling and cancelling one timer, the life of a <code>timeout</code> that does not fire,
+ * with 10k, 100k and 1M other timers pending.
+ */
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BenchmarkTimerScheduler extends AbstractBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int pendingTimers;
+
+    @Param({"computation", "wheel"})
+    public String scheduler;
+
+    private HashedWheelScheduler wheel;
+    private Scheduler.Worker worker;
+
+    @Setup
+    public void setup() {
+        if (scheduler.equals("wheel")) {
+            wheel = new HashedWheelScheduler(10, TimeUnit.MILLISECONDS, 512);
+            worker = wheel.createWorker();
+        } else {
+            worker = Schedulers.computation().createWorker();
+        }
+
+        for (int i = 0; i < pendingTimers; i++) {
+            worker.schedule(() -> { }, 1, TimeUnit.HOURS);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        worker.unsubscribe();
+        if (wheel != null) {
+            wheel.shutdown();
+        }
+    }
+
+    @Benchmark
+    public void schedule_And_Cancel() {
+        worker.schedule(() -> { }, 1, TimeUnit.MINUTES).unsubscribe();
+    }
+
+}
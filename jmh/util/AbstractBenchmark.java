@@ -0,0 +1,140 @@
+package util;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import rx.Observable;
+import rx.schedulers.Schedulers;
+
+/**
+ * Benchmark counterpart of {@link AbstractTest}.
+ *
+ * Every benchmark reports throughput, average time and sampled time (p50/p90/p99/p999...).
+ * Run through the gradle <code>jmh</code> task to get the allocation rate from the GC profiler as well.
+ *
+ * The simulated service latency defaults to 0 so the numbers show the cost of the Observable
+ * plumbing itself; use <code>-p speedInMillis=1</code> to put a blocking call back in, <code>-p latency=pareto</code>
+ * to give it a tail (see {@link LatencyModel#of(String, long, java.util.Random)}), and <code>-p ids=secureRandom</code>
+ * for the ids of {@link UUID#randomUUID()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class AbstractBenchmark {
+
+    @Param("0")
+    public long speedInMillis;
+
+    @Param("50")
+    public int repeatingCount;
+
+    /**
+     * {@link LatencyModel} of the slow service around <code>speedInMillis</code>, drawn from
+     * {@link LatencyModel#perThreadRandom(long)} with a fixed seed.
+     */
+    @Param("constant")
+    public String latency;
+
+    /**
+     * Cost of every key of a bulk call on top of its <code>speedInMillis</code> round-trip.
+     */
+    @Param("0")
+    public long speedPerBulkItemInMicros;
+
+    /**
+     * {@link IdGenerator} of the simulated service, one that does not queue the threads on a shared SecureRandom.
+     */
+    @Param("threadLocalRandom")
+    public String ids;
+
+    // created on first use, the @Setup methods of the subclasses may call the service before any of ours
+    private volatile IdGenerator idGenerator;
+    private volatile LatencyModel latencyModel;
+
+    protected IdGenerator idGenerator() {
+        IdGenerator generator = idGenerator;
+        if (generator == null) {
+            synchronized (this) {
+                generator = idGenerator;
+                if (generator == null) {
+                    generator = IdGenerator.of(ids);
+                    idGenerator = generator;
+                }
+            }
+        }
+        return generator;
+    }
+
+    protected LatencyModel slowServiceLatency() {
+        LatencyModel model = latencyModel;
+        if (model == null) {
+            synchronized (this) {
+                model = latencyModel;
+                if (model == null) {
+                    model = LatencyModel.of(latency, speedInMillis, LatencyModel.perThreadRandom(42));
+                    latencyModel = model;
+                }
+            }
+        }
+        return model;
+    }
+
+    protected UUID callSlowService() {
+        sleepMicros(slowServiceLatency().nextMicros());
+        return idGenerator().next();
+    }
+
+    protected UUID callService(long milliSpeed) {
+        sleepMicros(TimeUnit.MILLISECONDS.toMicros(milliSpeed));
+        return idGenerator().next();
+    }
+
+    private static void sleepMicros(long micros) {
+        if (micros > 0) {
+            try {
+                TimeUnit.MICROSECONDS.sleep(micros);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * Non-blocking call with a latency drawn from <code>latency</code> for every subscription.
+     */
+    protected Observable<UUID> callServiceAsync(LatencyModel latency) {
+        return Observable.defer(() -> Observable.timer(latency.nextMicros(), TimeUnit.MICROSECONDS, Schedulers.computation()))
+                .map(tick -> idGenerator().next());
+    }
+
+    /**
+     * Bulk flavour of {@link #callSlowService()}: one round-trip drawn from {@link #slowServiceLatency()}
+     * plus <code>speedPerBulkItemInMicros</code> for every key.
+     */
+    protected <K> Map<K, UUID> callSlowServiceBulk(List<K> keys) {
+        sleepMicros(slowServiceLatency().nextMicros() + speedPerBulkItemInMicros * keys.size());
+
+        Map<K, UUID> results = new HashMap<>();
+        for (K key : keys) {
+            results.put(key, idGenerator().next());
+        }
+        return results;
+    }
+
+}
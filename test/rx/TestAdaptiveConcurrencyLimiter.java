@@ -0,0 +1,195 @@
+package rx;
+
+import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import rx.observers.TestSubscriber;
+import rx.schedulers.Schedulers;
+import util.AbstractTest;
+import util.AdaptiveConcurrencyLimiter;
+import util.LatencyHistogram;
+import util.LatencyModel;
+import util.SimulatedServer;
+
+public class TestAdaptiveConcurrencyLimiter extends AbstractTest {
+
+    @Test
+    public void testFanOut_Adapts_To_Server_Capacity() {
+        speedInMillis = 20;
+        repeatingCount = 1000;
+        int workers = 50;
+
+        SimulatedServer server = new SimulatedServer(workers, LatencyModel.constant(speedInMillis));
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 1000, 2, ticker());
+
+        // unbounded, every call queues on the server
+        strings = Observable.range(0, repeatingCount)
+        .flatMap(index -> server.call()
+                .compose(latencies.stage("unbounded")))
+        .map(uuid -> uuid.toString())
+        .toList()
+        .toBlocking()
+        .single();
+
+        long unboundedMillis = watch.elapsed(TimeUnit.MILLISECONDS);
+
+        strings = Observable.range(0, repeatingCount)
+        .compose(limiter.flatMap(index -> server.call()
+                .compose(latencies.stage("adaptive"))))
+        .map(uuid -> uuid.toString())
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        LatencyHistogram unbounded = latencies.histogram("unbounded first item");
+        LatencyHistogram adaptive = latencies.histogram("adaptive first item");
+
+        assertThat(strings, hasSize(repeatingCount));
+        // the queue moved from the server to the client, the calls themselves stay fast
+        assertThat(adaptive.percentile(99), lessThan(unbounded.percentile(99) / 2));
+        assertThat(limiter.limit(), both(greaterThanOrEqualTo(workers / 2)).and(lessThan(workers * 4)));
+        // for about the same throughput
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS) - unboundedMillis, lessThan(unboundedMillis * 2));
+        assertThat(limiter.inFlight(), is(0));
+        assertThat(limiter.queueDepth(), is(0));
+
+    }
+
+    @Test
+    public void testLimit_Grows_Up_To_Maximum() {
+        speedInMillis = 10;
+        repeatingCount = 2000;
+        int maxLimit = 32;
+
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, maxLimit, 2, ticker());
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        AtomicInteger peakQueue = new AtomicInteger();
+
+        // a service that never queues
+        strings = Observable.range(0, repeatingCount)
+        .compose(limiter.flatMap(index -> callSlowServiceAsync()
+                .doOnSubscribe(() -> {
+                    peak.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+                    peakQueue.accumulateAndGet(limiter.queueDepth(), Math::max);
+                })
+                .doOnTerminate(concurrent::decrementAndGet)))
+        .map(uuid -> uuid.toString())
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        assertThat(strings, hasSize(repeatingCount));
+        assertThat(limiter.limit(), is(maxLimit));
+        assertThat(peak.get(), is(maxLimit));
+        // fed from upstream the maximum limit at a time
+        assertThat(peakQueue.get(), both(greaterThan(0)).and(lessThanOrEqualTo(maxLimit)));
+
+    }
+
+    @Test
+    public void testLucky_Call_Does_Not_Pin_The_Baseline() {
+        speedInMillis = 20;
+        repeatingCount = 2000;
+
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100, 2, ticker());
+
+        // a service that never queues, but one of whose early answers came from a warm cache
+        strings = Observable.range(0, repeatingCount)
+        .compose(limiter.flatMap(index -> callServiceAsync(index == 100 ? 1 : speedInMillis)))
+        .map(uuid -> uuid.toString())
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        assertThat(strings, hasSize(repeatingCount));
+        // the 1 ms baseline expired with its window, the calls at 20 ms count as fast again
+        assertThat(limiter.limit(), greaterThan(10));
+
+    }
+
+    @Test
+    public void testDownstream_Requests_Respected() {
+        repeatingCount = 10_000;
+
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100, 2, ticker());
+        TestSubscriber<Integer> subscriber = new TestSubscriber<>(0L);
+
+        Observable.range(0, repeatingCount)
+        .compose(limiter.flatMap(index -> Observable.just(index)))
+        .subscribe(subscriber);
+
+        subscriber.assertNoValues();
+
+        subscriber.requestMore(3);
+        subscriber.assertValueCount(3);
+
+        subscriber.requestMore(Long.MAX_VALUE);
+        subscriber.assertValueCount(repeatingCount);
+        subscriber.assertCompleted();
+
+        // a slow consumer behind observeOn, with its bounded buffer
+        List<Integer> items = Observable.range(0, repeatingCount)
+        .compose(limiter.flatMap(index -> callServiceAsync(0).map(uuid -> index)))
+        .observeOn(Schedulers.computation())
+        .doOnNext(index -> Thread.yield())
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        assertThat(items, hasSize(repeatingCount));
+        assertThat(limiter.inFlight(), is(0));
+        assertThat(limiter.queueDepth(), is(0));
+
+    }
+
+    @Test(expected = MockTestException.class)
+    public void testError_Propagated_And_Upstream_Cancelled() {
+        speedInMillis = 10;
+        repeatingCount = 1000;
+
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100, 2, ticker());
+        AtomicInteger emitted = new AtomicInteger();
+
+        try {
+
+            Observable.range(0, repeatingCount)
+            .doOnNext(index -> emitted.incrementAndGet())
+            .compose(limiter.flatMap(index -> index == 100
+                    ? Observable.<UUID>error(new MockTestException("This exception is exposed"))
+                    : callSlowServiceAsync()))
+            .toList()
+            .toBlocking()
+            .single();
+
+        } finally {
+            watch.stop();
+
+            assertThat(emitted.get(), lessThan(repeatingCount));
+            assertThat(limiter.limit(), lessThan(100));
+        }
+
+    }
+
+}
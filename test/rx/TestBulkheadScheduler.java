@@ -0,0 +1,211 @@
+package rx;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import util.AbstractTest;
+import util.BulkheadScheduler;
+import util.BulkheadScheduler.FullException;
+import util.BulkheadScheduler.RejectionPolicy;
+
+public class TestBulkheadScheduler extends AbstractTest {
+
+    @Override
+    protected boolean isVirtualTime() {
+        // the elapsed time bounds are those of the calls, not of the threads of the bulkheads competing for the cores
+        return true;
+    }
+
+    private final Set<String> threadNames = ConcurrentHashMap.newKeySet();
+
+    private Observable<UUID> dependency(BulkheadScheduler bulkhead, long milliSpeed) {
+        return Observable.fromCallable(() -> {
+            threadNames.add(Thread.currentThread().getName());
+            return callService(milliSpeed);
+        })
+        .subscribeOn(bulkhead);
+    }
+
+    private BulkheadScheduler bulkhead(String name, int threads, int queueCapacity, RejectionPolicy rejectionPolicy) {
+        return new BulkheadScheduler(name, threads, queueCapacity, rejectionPolicy, threadFactory(name + "-%d"));
+    }
+
+    @Test
+    public void testDefer_Repeating_Threaded_Bulkhead() {
+        speedInMillis = 100;
+        repeatingCount = 50;
+
+        BulkheadScheduler bulkhead = bulkhead("backend", 10, repeatingCount, RejectionPolicy.FAIL);
+        AtomicInteger peakActive = new AtomicInteger();
+        AtomicInteger peakQueued = new AtomicInteger();
+
+        strings = Observable.range(0, repeatingCount)
+        .flatMap(index -> dependency(bulkhead, speedInMillis)
+                .doOnNext(uuid -> {
+                    peakActive.accumulateAndGet(bulkhead.active(), Math::max);
+                    peakQueued.accumulateAndGet(bulkhead.queued(), Math::max);
+                }))
+        .map(uuid -> uuid.toString())
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+        bulkhead.shutdown();
+
+        assertThat(strings, hasSize(repeatingCount));
+        // 10 threads at most, the others wait in the queue: 5 rounds
+        assertThat(threadNames, hasSize(10));
+        assertThat(threadNames, everyItem(startsWith("backend-")));
+        assertThat(peakActive.get(), lessThanOrEqualTo(10));
+        assertThat(peakQueued.get(), lessThanOrEqualTo(repeatingCount - 10));
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), greaterThanOrEqualTo(speedInMillis * 5));
+        assertThat(bulkhead.rejected(), is(0L));
+
+    }
+
+    @Test
+    public void testFull_Bulkhead_Rejects_With_Error() {
+        speedInMillis = 500;
+        repeatingCount = 20;
+
+        BulkheadScheduler bulkhead = bulkhead("backend", 5, 5, RejectionPolicy.FAIL);
+
+        strings = Observable.range(0, repeatingCount)
+        .flatMap(index -> dependency(bulkhead, speedInMillis)
+                .map(uuid -> "ok")
+                .onErrorReturn(e -> e.getClass().getSimpleName()))
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+        bulkhead.shutdown();
+
+        // 5 running, 5 queued, the other 10 failed without waiting
+        assertThat(strings.stream().filter("ok"::equals).count(), is(10L));
+        assertThat(strings.stream().filter(FullException.class.getSimpleName()::equals).count(), is(10L));
+        assertThat(bulkhead.rejected(), is(10L));
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), lessThan(speedInMillis * 3));
+
+    }
+
+    @Test
+    public void testSlow_Dependency_Does_Not_Starve_Others() {
+        speedInMillis = 2000;
+        repeatingCount = 100;
+        long fastInMillis = 50;
+
+        BulkheadScheduler slow = bulkhead("slow", 10, 10, RejectionPolicy.FAIL);
+        BulkheadScheduler fast = bulkhead("fast", 10, 10, RejectionPolicy.FAIL);
+
+        // saturates its own bulkhead, most calls are rejected
+        Observable.range(0, repeatingCount)
+        .flatMap(index -> dependency(slow, speedInMillis)
+                .onErrorResumeNext(Observable.empty()))
+        .subscribe();
+
+        strings = Observable.range(0, 10)
+        .flatMap(index -> dependency(fast, fastInMillis))
+        .map(uuid -> uuid.toString())
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        assertThat(strings, hasSize(10));
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), lessThan(speedInMillis / 2));
+        assertThat(slow.active(), is(10));
+        assertThat(slow.rejected(), is((long) repeatingCount - 20));
+        assertThat(fast.rejected(), is(0L));
+
+        slow.shutdown();
+        fast.shutdown();
+
+    }
+
+    @Test
+    public void testCaller_Runs_When_Full() {
+        speedInMillis = 200;
+        repeatingCount = 20;
+
+        BulkheadScheduler bulkhead = bulkhead("backend", 5, 5, RejectionPolicy.CALLER_RUNS);
+
+        strings = Observable.range(0, repeatingCount)
+        .flatMap(index -> dependency(bulkhead, speedInMillis))
+        .map(uuid -> uuid.toString())
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+        bulkhead.shutdown();
+
+        // the subscribing thread made the rejected calls itself, which held back the next ones
+        assertThat(strings, hasSize(repeatingCount));
+        assertThat(threadNames.stream().anyMatch(name -> !name.startsWith("backend-")), is(true));
+        assertThat(bulkhead.rejected(), greaterThanOrEqualTo(1L));
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), greaterThanOrEqualTo(speedInMillis * 2));
+
+    }
+
+    @Test
+    public void testCaller_Runs_Keeps_The_Worker_Serial() throws InterruptedException {
+        speedInMillis = 100;
+
+        BulkheadScheduler bulkhead = bulkhead("backend", 1, 1, RejectionPolicy.CALLER_RUNS);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> events = new CopyOnWriteArrayList<>();
+
+        // one running, one queued: the bulkhead is full
+        for (int i = 0; i < 2; i++) {
+            bulkhead.createWorker().schedule(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        }
+
+        Scheduler.Worker worker = bulkhead.createWorker();
+        worker.schedule(() -> {
+            events.add("first on " + Thread.currentThread().getName());
+            // the bulkhead has room again while the caller still runs the first action
+            release.countDown();
+            callService(speedInMillis);
+            worker.schedule(() -> events.add("second on " + Thread.currentThread().getName()));
+            callService(speedInMillis);
+            events.add("first done");
+        });
+
+        watch.stop();
+        worker.unsubscribe();
+        bulkhead.shutdown();
+
+        String caller = Thread.currentThread().getName();
+        assertThat(events, contains("first on " + caller, "first done", "second on " + caller));
+        assertThat(bulkhead.rejected(), is(1L));
+
+    }
+
+}
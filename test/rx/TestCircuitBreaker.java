@@ -0,0 +1,178 @@
+package rx;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import rx.observers.TestSubscriber;
+import rx.subjects.PublishSubject;
+import util.AbstractTest;
+import util.CircuitBreaker;
+import util.CircuitBreaker.OpenException;
+import util.RetryWithBackoff;
+
+public class TestCircuitBreaker extends AbstractTest {
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicBoolean healthy = new AtomicBoolean();
+
+    private Observable<UUID> dependency() {
+        return Observable.fromCallable(() -> {
+
+            calls.incrementAndGet();
+            callSlowService();
+
+            if (!healthy.get()) {
+                throwTestException("The dependency is down");
+            }
+
+            return UUID.randomUUID();
+        });
+    }
+
+    private String outcome(Observable<UUID> call) {
+        return call
+                .map(uuid -> "ok")
+                .onErrorReturn(e -> e.getClass().getSimpleName())
+                .toBlocking()
+                .single();
+    }
+
+    @Test
+    public void testOpen_Fails_Fast_Without_Calls() {
+        speedInMillis = 100;
+        repeatingCount = 100;
+
+        CircuitBreaker breaker = new CircuitBreaker(5, 1, TimeUnit.MINUTES, ticker());
+        Observable<UUID> protectedCall = dependency().compose(breaker.protect());
+
+        for (int i = 0; i < repeatingCount; i++) {
+            outcome(protectedCall);
+        }
+
+        watch.stop();
+
+        // the first 5 paid the slow failure, the other 95 did not wait for anything
+        assertThat(calls.get(), is(5));
+        assertThat(breaker.state(), is(CircuitBreaker.State.OPEN));
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), lessThan(speedInMillis * 6));
+
+    }
+
+    @Test
+    public void testHalf_Open_Trial_Closes_When_Healthy() {
+        speedInMillis = 100;
+        long openInMillis = 500;
+
+        CircuitBreaker breaker = new CircuitBreaker(1, openInMillis, TimeUnit.MILLISECONDS, ticker());
+        Observable<UUID> protectedCall = dependency().compose(breaker.protect());
+
+        assertThat(outcome(protectedCall), is(MockTestException.class.getSimpleName()));
+        assertThat(outcome(protectedCall), is(OpenException.class.getSimpleName()));
+
+        healthy.set(true);
+        callService(openInMillis);
+
+        assertThat(outcome(protectedCall), is("ok"));
+        assertThat(breaker.state(), is(CircuitBreaker.State.CLOSED));
+        assertThat(outcome(protectedCall), is("ok"));
+
+        watch.stop();
+
+        assertThat(calls.get(), is(3));
+
+    }
+
+    @Test
+    public void testHalf_Open_Trial_Opens_Again_When_Still_Down() {
+        speedInMillis = 100;
+        long openInMillis = 500;
+
+        CircuitBreaker breaker = new CircuitBreaker(1, openInMillis, TimeUnit.MILLISECONDS, ticker());
+        Observable<UUID> protectedCall = dependency().compose(breaker.protect());
+
+        outcome(protectedCall);
+        callService(openInMillis);
+
+        assertThat(outcome(protectedCall), is(MockTestException.class.getSimpleName()));
+        assertThat(breaker.state(), is(CircuitBreaker.State.OPEN));
+        assertThat(outcome(protectedCall), is(OpenException.class.getSimpleName()));
+
+        watch.stop();
+
+        assertThat(calls.get(), is(2));
+
+    }
+
+    @Test
+    public void testHalf_Open_Ignores_Calls_Started_Before_Opening() {
+        long openInMillis = 500;
+
+        CircuitBreaker breaker = new CircuitBreaker(1, openInMillis, TimeUnit.MILLISECONDS, ticker());
+        PublishSubject<UUID> before = PublishSubject.create();
+        PublishSubject<UUID> trial = PublishSubject.create();
+
+        TestSubscriber<UUID> slowCall = new TestSubscriber<>();
+        before.compose(breaker.<UUID>protect()).subscribe(slowCall);
+
+        assertThat(outcome(dependency().compose(breaker.protect())), is(MockTestException.class.getSimpleName()));
+        assertThat(breaker.state(), is(CircuitBreaker.State.OPEN));
+
+        callService(openInMillis);
+
+        TestSubscriber<UUID> trialCall = new TestSubscriber<>();
+        trial.compose(breaker.<UUID>protect()).subscribe(trialCall);
+        assertThat(breaker.state(), is(CircuitBreaker.State.HALF_OPEN));
+
+        // the call made while closed answers during the trial, it does not decide for it
+        before.onError(new MockTestException("Started before the breaker opened"));
+        assertThat(breaker.state(), is(CircuitBreaker.State.HALF_OPEN));
+
+        trial.onNext(UUID.randomUUID());
+        trial.onCompleted();
+
+        watch.stop();
+
+        slowCall.assertError(MockTestException.class);
+        trialCall.assertCompleted();
+        assertThat(breaker.state(), is(CircuitBreaker.State.CLOSED));
+
+    }
+
+    @Test
+    public void testRetry_Stops_On_Open_Breaker() {
+        speedInMillis = 100;
+
+        CircuitBreaker breaker = new CircuitBreaker(3, 1, TimeUnit.MINUTES, ticker());
+
+        try {
+            dependency()
+            .compose(breaker.protect())
+            .retryWhen(new RetryWithBackoff(10, 10, 100, TimeUnit.MILLISECONDS, e -> e instanceof MockTestException))
+            .toBlocking()
+            .single();
+
+            fail("The breaker is expected to open");
+        } catch (RuntimeException e) {
+            assertThat(e, instanceOf(OpenException.class));
+        }
+
+        watch.stop();
+
+        // 3 failures open the breaker, the 4th attempt fails fast and is not retried
+        assertThat(calls.get(), is(3));
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), greaterThanOrEqualTo(speedInMillis * 3));
+
+    }
+
+}
@@ -0,0 +1,139 @@
+package rx;
+
+import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+import rx.schedulers.Schedulers;
+import util.AbstractTest;
+import util.FanOut;
+import util.StreamVerifier;
+
+public class TestFanOut extends AbstractTest {
+
+    @Test
+    public void testDefer_Repeating_Threaded_Observer_Async_Lazy() {
+        speedInMillis = 1000;
+        repeatingCount = 50;
+
+        Observable<UUID> slow = Observable.fromCallable(() -> {
+
+            showCallableThreadName();
+            callSlowService();
+
+            return UUID.randomUUID();
+        });
+
+        strings = FanOut.range(repeatingCount, index -> slow.subscribeOn(Schedulers.io()))
+        .build()
+        .map(uuid -> uuid.toString())
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        assertThat(Sets.newLinkedHashSet(strings), hasSize(repeatingCount));
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), both(greaterThanOrEqualTo(speedInMillis)).and(lessThan(speedInMillis * 2 - speedInMillis / 2)));
+
+    }
+
+    @Test
+    public void testBounded_Concurrency() {
+        speedInMillis = 100;
+        repeatingCount = 100;
+        int maxConcurrency = 10;
+
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+
+        strings = FanOut.range(repeatingCount, index -> callSlowServiceAsync()
+                .doOnSubscribe(() -> peak.accumulateAndGet(concurrent.incrementAndGet(), Math::max))
+                .doOnTerminate(concurrent::decrementAndGet))
+        .maxConcurrency(maxConcurrency)
+        .build()
+        .map(uuid -> uuid.toString())
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        assertThat(strings, hasSize(repeatingCount));
+        assertThat(peak.get(), is(maxConcurrency));
+        // 10 rounds of 10 calls
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), greaterThanOrEqualTo(speedInMillis * 10));
+
+    }
+
+    @Test
+    public void testSources_Created_On_Demand() {
+        repeatingCount = 1_000_000;
+        int maxConcurrency = 16;
+
+        AtomicInteger created = new AtomicInteger();
+        // never materialized: a list of the inputs would not fit
+        Iterable<Integer> inputs = () -> new Iterator<Integer>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < Integer.MAX_VALUE;
+            }
+
+            @Override
+            public Integer next() {
+                return next++;
+            }
+        };
+
+        strings = FanOut.from(inputs, input -> {
+            created.incrementAndGet();
+            return callSlowServiceAsync();
+        })
+        .maxConcurrency(maxConcurrency)
+        .build()
+        .take(100)
+        .map(uuid -> uuid.toString())
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        assertThat(strings, hasSize(100));
+        assertThat(created.get(), lessThanOrEqualTo(100 + maxConcurrency));
+
+    }
+
+    @Test
+    public void testMillion_Sources_Verified_Streaming() {
+        repeatingCount = 1_000_000;
+
+        StreamVerifier<UUID> verifier = new StreamVerifier<UUID>(ticker())
+                .expectCount(repeatingCount)
+                .expectProbablyDistinct(StreamVerifier.uuidFunnel(), repeatingCount, 0.01)
+                .verify(FanOut.range(repeatingCount, index -> Observable.fromCallable(() -> callSlowService()))
+                        .maxConcurrency(64)
+                        .build());
+
+        watch.stop();
+
+        assertThat(verifier.count(), is((long) repeatingCount));
+
+    }
+
+}
@@ -0,0 +1,152 @@
+package rx;
+
+import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import rx.schedulers.Schedulers;
+import util.AbstractTest;
+import util.HashedWheelScheduler;
+
+public class TestHashedWheelScheduler extends AbstractTest {
+
+    private HashedWheelScheduler wheel;
+
+    @Before
+    public void createWheel() {
+        wheel = new HashedWheelScheduler(10, TimeUnit.MILLISECONDS, 512);
+    }
+
+    @After
+    public void shutdownWheel() {
+        wheel.shutdown();
+    }
+
+    @Override
+    protected boolean isVirtualTime() {
+        // the wheel turns in real time
+        return false;
+    }
+
+    @Test
+    public void testTimeout_On_Wheel() {
+        speedInMillis = 1000;
+
+        try {
+            Observable.never()
+            .timeout(speedInMillis, TimeUnit.MILLISECONDS, wheel)
+            .toBlocking()
+            .single();
+
+            fail("The timeout is expected to fire");
+        } catch (RuntimeException e) {
+            assertThat(e.getCause(), instanceOf(TimeoutException.class));
+        }
+
+        watch.stop();
+
+        // never early, at most a tick or two late
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), both(greaterThanOrEqualTo(speedInMillis)).and(lessThan(speedInMillis + 100)));
+
+    }
+
+    @Test
+    public void testTimeout_Beyond_One_Turn_Of_The_Wheel() {
+        // 16 buckets of 10ms, the timer needs several rounds
+        wheel.shutdown();
+        wheel = new HashedWheelScheduler(10, TimeUnit.MILLISECONDS, 16);
+        speedInMillis = 500;
+
+        try {
+            Observable.never()
+            .timeout(speedInMillis, TimeUnit.MILLISECONDS, wheel)
+            .toBlocking()
+            .single();
+
+            fail("The timeout is expected to fire");
+        } catch (RuntimeException e) {
+            assertThat(e.getCause(), instanceOf(TimeoutException.class));
+        }
+
+        watch.stop();
+
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), both(greaterThanOrEqualTo(speedInMillis)).and(lessThan(speedInMillis + 100)));
+
+    }
+
+    @Test
+    public void testDelay_On_Wheel() {
+        speedInMillis = 500;
+        repeatingCount = 3;
+
+        strings = Observable.fromCallable(() -> UUID.randomUUID())
+        .repeat(repeatingCount)
+        .delay(speedInMillis, TimeUnit.MILLISECONDS, wheel)
+        .map(uuid -> uuid.toString())
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        assertThat(strings, hasSize(repeatingCount));
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), greaterThanOrEqualTo(speedInMillis));
+
+    }
+
+    @Test
+    public void testAsync_With_Timeout_Per_Call_Cancelled() {
+        speedInMillis = 100;
+        repeatingCount = 10_000;
+
+        // every call answers well within its timeout, so every timer gets cancelled
+        List<UUID> uuids = Observable.merge(Observable.range(0, repeatingCount)
+                .map(index -> callSlowServiceAsync().timeout(speedInMillis * 100, TimeUnit.MILLISECONDS, wheel)))
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        assertThat(uuids, hasSize(repeatingCount));
+        assertThat(wheel.pending(), is(0));
+
+    }
+
+    @Test
+    public void testTimeout_Slow_Callable_On_Io() {
+        speedInMillis = 1000;
+
+        try {
+            Observable.fromCallable(() -> callSlowService())
+            .subscribeOn(Schedulers.io())
+            .timeout(speedInMillis / 2, TimeUnit.MILLISECONDS, wheel)
+            .toBlocking()
+            .single();
+
+            fail("The timeout is expected to fire");
+        } catch (RuntimeException e) {
+            assertThat(e.getCause(), instanceOf(TimeoutException.class));
+        }
+
+        watch.stop();
+
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), both(greaterThanOrEqualTo(speedInMillis / 2)).and(lessThan(speedInMillis)));
+
+    }
+
+}
@@ -0,0 +1,115 @@
+package rx;
+
+import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import util.AbstractTest;
+import util.HedgedRequests;
+import util.LatencyHistogram;
+
+public class TestHedgedRequests extends AbstractTest {
+
+    @Test
+    public void testHedged_Heavy_Tail_P99() {
+        speedInMillis = 20;
+        repeatingCount = 1000;
+
+        // the p90 of the service, learnt from the unhedged calls
+        LatencyHistogram observed = latencies.histogram("unhedged first item");
+        HedgedRequests hedging = new HedgedRequests(observed, 90, speedInMillis * 5, TimeUnit.MILLISECONDS, 0.2);
+
+        strings = Observable.range(0, repeatingCount)
+        .flatMap(index -> callSlowServiceHeavyTailAsync()
+                .compose(latencies.stage("unhedged")))
+        .map(uuid -> uuid.toString())
+        .toList()
+        .toBlocking()
+        .single();
+
+        strings = Observable.range(0, repeatingCount)
+        .flatMap(index -> callSlowServiceHeavyTailAsync()
+                .compose(hedging.hedged())
+                .compose(latencies.stage("hedged")))
+        .map(uuid -> uuid.toString())
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        LatencyHistogram hedged = latencies.histogram("hedged first item");
+
+        assertThat(strings, hasSize(repeatingCount));
+        assertThat(hedged.percentile(99), lessThan(observed.percentile(99) * 3 / 4));
+        // about the 10% above p90, within the budget
+        assertThat(hedging.hedges(), both(greaterThan(0L)).and(lessThanOrEqualTo((long) (repeatingCount * 0.2))));
+        assertThat(hedging.hedgeWins(), greaterThan(0L));
+
+    }
+
+    @Test
+    public void testBudget_Caps_Hedges() {
+        speedInMillis = 100;
+        repeatingCount = 1000;
+
+        // every call is slower than the delay
+        HedgedRequests hedging = new HedgedRequests(speedInMillis / 10, TimeUnit.MILLISECONDS, 0.05);
+
+        strings = Observable.range(0, repeatingCount)
+        .flatMap(index -> callSlowServiceAsync()
+                .compose(hedging.hedged()))
+        .map(uuid -> uuid.toString())
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        assertThat(strings, hasSize(repeatingCount));
+        assertThat(hedging.requests(), is((long) repeatingCount));
+        assertThat(hedging.hedges(), lessThanOrEqualTo((long) (repeatingCount * 0.05)));
+
+    }
+
+    @Test
+    public void testLoser_Unsubscribed() {
+        speedInMillis = 1000;
+        long delayInMillis = 100;
+
+        AtomicInteger subscriptions = new AtomicInteger();
+        AtomicBoolean primaryUnsubscribed = new AtomicBoolean();
+
+        // the primary call is stuck, the backup answers at once
+        Observable<UUID> call = Observable.defer(() -> subscriptions.incrementAndGet() == 1
+                ? callSlowServiceAsync().doOnUnsubscribe(() -> primaryUnsubscribed.set(true))
+                : callServiceAsync(0));
+
+        HedgedRequests hedging = new HedgedRequests(delayInMillis, TimeUnit.MILLISECONDS, 1);
+
+        call.compose(hedging.hedged())
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        assertThat(subscriptions.get(), is(2));
+        assertThat(primaryUnsubscribed.get(), is(true));
+        assertThat(hedging.hedgeWins(), is(1L));
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), both(greaterThanOrEqualTo(delayInMillis)).and(lessThan(speedInMillis)));
+
+    }
+
+}
@@ -0,0 +1,114 @@
+package rx;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Test;
+
+import rx.schedulers.Schedulers;
+import util.AbstractTest;
+import util.IdGenerator;
+
+public class TestIdGenerator extends AbstractTest {
+
+    private static final String[] GENERATORS = { "secureRandom", "threadLocalRandom", "timeOrdered", "counterBlocks" };
+
+    private Set<UUID> generateConcurrently(IdGenerator generator, int threads) {
+        Set<UUID> generated = ConcurrentHashMap.newKeySet();
+
+        Observable.range(0, threads)
+        .flatMap(thread -> Observable.fromCallable(() -> {
+            for (int i = 0; i < repeatingCount; i++) {
+                generated.add(generator.next());
+            }
+            return thread;
+        })
+        .subscribeOn(Schedulers.io()))
+        .toBlocking()
+        .last();
+
+        return generated;
+    }
+
+    @Test
+    public void testIds_Unique_Across_Threads() {
+        repeatingCount = 10_000;
+        int threads = 8;
+
+        for (String name : GENERATORS) {
+            assertThat(name, generateConcurrently(IdGenerator.of(name), threads), hasSize(repeatingCount * threads));
+        }
+
+        watch.stop();
+
+    }
+
+    @Test
+    public void testRandom_Ids_Are_Version_4() {
+        repeatingCount = 1000;
+
+        for (String name : new String[] { "secureRandom", "threadLocalRandom", "counterBlocks" }) {
+            IdGenerator generator = IdGenerator.of(name);
+            for (int i = 0; i < repeatingCount; i++) {
+                UUID uuid = generator.next();
+                assertThat(name, uuid.version(), is(4));
+                assertThat(name, uuid.variant(), is(2));
+            }
+        }
+
+        watch.stop();
+
+    }
+
+    @Test
+    public void testTime_Ordered_Ids_Increase() {
+        repeatingCount = 100_000;
+
+        IdGenerator generator = IdGenerator.timeOrdered();
+        List<UUID> generated = new ArrayList<>();
+        long startMillis = System.currentTimeMillis();
+
+        for (int i = 0; i < repeatingCount; i++) {
+            generated.add(generator.next());
+        }
+
+        watch.stop();
+
+        for (int i = 1; i < repeatingCount; i++) {
+            assertThat(generated.get(i).compareTo(generated.get(i - 1)), greaterThan(0));
+        }
+        assertThat(generated.get(0).version(), is(7));
+        assertThat(generated.get(0).variant(), is(2));
+        // the leading 48 bits are the creation time
+        assertThat(generated.get(0).getMostSignificantBits() >>> 16 >= startMillis, is(true));
+
+    }
+
+    @Test
+    public void testService_Ids_From_Selected_Generator() {
+        ids = IdGenerator.counterBlocks(16);
+
+        UUID first = callService(0);
+        UUID second = callService(0);
+        UUID async = callSlowServiceAsync()
+                .toBlocking()
+                .single();
+
+        watch.stop();
+
+        // counted through the block of the test thread, the computation thread took its own block
+        assertThat(second.getLeastSignificantBits() - first.getLeastSignificantBits(), is(1L));
+        assertThat(async.getMostSignificantBits(), is(first.getMostSignificantBits()));
+        assertThat(async.getLeastSignificantBits() - first.getLeastSignificantBits(), is(16L));
+
+    }
+
+}
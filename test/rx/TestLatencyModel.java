@@ -0,0 +1,165 @@
+package rx;
+
+import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import rx.schedulers.Schedulers;
+import util.AbstractTest;
+import util.LatencyHistogram;
+import util.LatencyModel;
+
+public class TestLatencyModel extends AbstractTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSeeded_Models_Replay_The_Same_Latencies() {
+        repeatingCount = 1000;
+
+        for (String shape : Arrays.asList("uniform", "lognormal", "bimodal", "pareto")) {
+            LatencyModel first = LatencyModel.of(shape, 100, new Random(7));
+            LatencyModel second = LatencyModel.of(shape, 100, new Random(7));
+
+            assertThat(shape, draw(first, repeatingCount), is(draw(second, repeatingCount)));
+        }
+
+        watch.stop();
+
+    }
+
+    @Test
+    public void testShapes_Around_The_Median() {
+        repeatingCount = 100_000;
+        long medianInMillis = 100;
+
+        LatencyHistogram uniform = histogram(LatencyModel.uniform(medianInMillis / 2, medianInMillis * 3 / 2, random), repeatingCount);
+        LatencyHistogram logNormal = histogram(LatencyModel.logNormal(medianInMillis, 0.5, random), repeatingCount);
+        LatencyHistogram bimodal = histogram(LatencyModel.bimodal(medianInMillis, medianInMillis * 10, 0.01, random), repeatingCount);
+
+        watch.stop();
+
+        long median = TimeUnit.MILLISECONDS.toNanos(medianInMillis);
+        assertThat(uniform.max(), lessThan(median * 3 / 2));
+        assertThat(uniform.percentile(50), both(greaterThanOrEqualTo(median * 9 / 10)).and(lessThanOrEqualTo(median * 11 / 10)));
+        assertThat(logNormal.percentile(50), both(greaterThanOrEqualTo(median * 9 / 10)).and(lessThanOrEqualTo(median * 11 / 10)));
+        // 3.2 times the median
+        assertThat(logNormal.percentile(99), both(greaterThanOrEqualTo(median * 3)).and(lessThanOrEqualTo(median * 4)));
+        assertThat(bimodal.percentile(98), lessThanOrEqualTo(median + median / 16));
+        assertThat(bimodal.percentile(99.5), greaterThanOrEqualTo(median * 10));
+
+    }
+
+    @Test
+    public void testReplay_Recorded_Latencies() throws IOException {
+        Path recorded = folder.newFile("latencies.txt").toPath();
+        Files.write(recorded, Arrays.asList("# recorded on the slow service", "1.5", "", "20", "300"));
+
+        LatencyModel replay = LatencyModel.of("replay:" + recorded, 0, random);
+
+        List<Long> micros = draw(replay, 5);
+
+        watch.stop();
+
+        assertThat(micros, is(Arrays.asList(1_500L, 20_000L, 300_000L, 1_500L, 20_000L)));
+
+    }
+
+    @Test
+    public void testDefer_Repeating_Threaded_LogNormal() {
+        speedInMillis = 100;
+        repeatingCount = 50;
+        latency = LatencyModel.logNormal(speedInMillis, 0.5, LatencyModel.perThreadRandom(random.nextLong()));
+
+        Observable<String> slow = Observable.fromCallable(() -> callSlowService())
+        .subscribeOn(Schedulers.io())
+        .compose(latencies.stage("callable"))
+        .map(uuid -> uuid.toString());
+
+        strings = Observable.merge(Observable.range(0, repeatingCount).map(index -> slow))
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        LatencyHistogram callable = latencies.histogram("callable first item");
+
+        assertThat(strings, hasSize(repeatingCount));
+        // the slowest of the 50 sets the pace, well above the median
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), greaterThan(speedInMillis));
+        assertThat(callable.max(), greaterThan(callable.percentile(50)));
+
+    }
+
+    @Test
+    public void testFailure_Rate() {
+        repeatingCount = 2000;
+        failureRate = 0.1;
+
+        strings = Observable.range(0, repeatingCount)
+        .flatMap(index -> callSlowServiceAsync()
+                .map(uuid -> "ok")
+                .onErrorReturn(e -> e.getClass().getSimpleName()))
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        long failures = strings.stream().filter(MockTestException.class.getSimpleName()::equals).count();
+
+        assertThat(strings, hasSize(repeatingCount));
+        assertThat(failures, both(greaterThan(repeatingCount / 20L)).and(lessThan(repeatingCount / 5L)));
+        assertThat(strings.stream().filter(result -> !result.equals("ok")).collect(Collectors.toList()), everyItem(is(MockTestException.class.getSimpleName())));
+
+    }
+
+    @Test
+    public void testPer_Thread_Random_Replays_With_The_Seed() {
+        long medianInMillis = 10;
+        repeatingCount = 1000;
+
+        LatencyModel first = LatencyModel.of("pareto", medianInMillis, LatencyModel.perThreadRandom(7));
+        LatencyModel replayed = LatencyModel.of("pareto", medianInMillis, LatencyModel.perThreadRandom(7));
+
+        watch.stop();
+
+        assertThat(draw(replayed, repeatingCount), is(draw(first, repeatingCount)));
+
+    }
+
+    private static List<Long> draw(LatencyModel model, int count) {
+        return LongStream.range(0, count).map(index -> model.nextMicros()).boxed().collect(Collectors.toList());
+    }
+
+    private static LatencyHistogram histogram(LatencyModel model, int count) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < count; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(model.nextMicros()));
+        }
+        return histogram;
+    }
+
+}
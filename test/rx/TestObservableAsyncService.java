@@ -0,0 +1,129 @@
+package rx;
+
+import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+import util.AbstractTest;
+
+public class TestObservableAsyncService extends AbstractTest {
+
+    @Override
+    protected boolean isVirtualTime() {
+        // thousands of timers fan out on the computation pool, their elapsed time would be that of the pool, not of the calls
+        return true;
+    }
+
+    @Test
+    public void testAsync_NoSubscription() {
+        speedInMillis = 1000;
+
+        callSlowServiceAsync();
+
+        watch.stop();
+
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), lessThan(speedInMillis));
+
+    }
+
+    @Test
+    public void testAsync_WithSubscription_Does_Not_Block() {
+        speedInMillis = 1000;
+
+        callSlowServiceAsync()
+        .subscribe();
+
+        watch.stop();
+
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), lessThan(speedInMillis));
+
+    }
+
+    @Test
+    public void testAsync_ToBlockingSingle() {
+        speedInMillis = 1000;
+
+        callSlowServiceAsync()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), greaterThanOrEqualTo(speedInMillis));
+
+    }
+
+    @Test
+    public void testAsync_Merge_FanOut_Without_Thread_Per_Call() {
+        speedInMillis = 1000;
+        // merge keeps its inner subscribers in a copy-on-write array, fanning out 100k sources at once is quadratic
+        repeatingCount = 10_000;
+
+        int threadsBefore = Thread.activeCount();
+
+        strings = Observable.merge(Observable.range(0, repeatingCount).map(index -> callSlowServiceAsync()))
+        .map(uuid -> uuid.toString())
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        assertThat(Sets.newHashSet(strings), hasSize(repeatingCount));
+        // only the computation event loops, one per core, are added
+        assertThat(Thread.activeCount(), lessThanOrEqualTo(threadsBefore + Runtime.getRuntime().availableProcessors()));
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), both(greaterThanOrEqualTo(speedInMillis)).and(lessThan(speedInMillis * 3)));
+
+    }
+
+    @Test
+    public void testFuture_AllOf_FanOut_Without_Thread_Per_Call() {
+        speedInMillis = 1000;
+        repeatingCount = 100_000;
+
+        int threadsBefore = Thread.activeCount();
+
+        List<CompletableFuture<UUID>> futures = IntStream.range(0, repeatingCount)
+                .mapToObj(index -> callSlowServiceFuture())
+                .collect(Collectors.toList());
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+
+        watch.stop();
+
+        assertThat(futures.stream().map(CompletableFuture::join).distinct().count(), is((long) repeatingCount));
+        assertThat(Thread.activeCount(), lessThanOrEqualTo(threadsBefore + Runtime.getRuntime().availableProcessors()));
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), both(greaterThanOrEqualTo(speedInMillis)).and(lessThan(speedInMillis * 3)));
+
+    }
+
+    @Test
+    public void testFuture_Cancel_Cancels_The_Call() {
+        speedInMillis = 1000;
+
+        CompletableFuture<UUID> future = callSlowServiceFuture();
+        future.cancel(true);
+
+        watch.stop();
+
+        assertThat(future.isCancelled(), is(true));
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), lessThan(speedInMillis));
+
+    }
+
+}
@@ -0,0 +1,138 @@
+package rx;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.Sets;
+
+import util.AbstractTest;
+import util.ObservableCache;
+
+public class TestObservableCache extends AbstractTest {
+
+    @Test
+    public void testFromCallable_WithSubscription_Redo_Cached() {
+        speedInMillis = 500;
+
+        ObservableCache<String, UUID> cache = new ObservableCache<>(100, 1, TimeUnit.MINUTES, ticker());
+
+        Set<String> stringSet = Sets.newLinkedHashSet();
+        Observable<UUID> observable = Observable.fromCallable(() -> {
+
+            return callSlowService();
+        })
+        .compose(cache.cached("request"));
+
+        stringSet.add(observable
+                .map(uuid -> uuid.toString())
+                .toBlocking()
+                .single()
+        );
+
+        stringSet.add(observable
+                .map(uuid -> uuid.toString())
+                .toBlocking()
+                .single()
+        );
+
+        watch.stop();
+
+        // the second subscription is served from memory
+        assertThat(stringSet, hasSize(1));
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), greaterThanOrEqualTo(speedInMillis));
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), lessThan(speedInMillis * 2));
+
+        CacheStats stats = cache.stats();
+        assertThat(stats.hitCount(), is(1L));
+        assertThat(stats.missCount(), is(1L));
+
+    }
+
+    @Test
+    public void testCached_Expires_After_Write() {
+        speedInMillis = 100;
+        long timeToLiveInMillis = 500;
+
+        ObservableCache<String, UUID> cache = new ObservableCache<>(100, timeToLiveInMillis, TimeUnit.MILLISECONDS, ticker());
+
+        Observable<UUID> observable = Observable.fromCallable(() -> callSlowService())
+        .compose(cache.cached("request"));
+
+        UUID first = observable.toBlocking().single();
+        UUID within = observable.toBlocking().single();
+
+        callService(timeToLiveInMillis);
+
+        UUID expired = observable.toBlocking().single();
+
+        watch.stop();
+
+        assertThat(within, is(first));
+        assertThat(expired.equals(first), is(false));
+        assertThat(cache.stats().missCount(), is(2L));
+
+    }
+
+    @Test
+    public void testCached_Evicts_Least_Recently_Used() {
+        repeatingCount = 10;
+
+        ObservableCache<Integer, UUID> cache = new ObservableCache<>(repeatingCount, 1, TimeUnit.MINUTES, ticker());
+
+        // one more key than the cache holds, key 0 is used again before the last one comes in
+        for (int key = 0; key < repeatingCount; key++) {
+            Observable.fromCallable(() -> callSlowService()).compose(cache.cached(key)).toBlocking().single();
+        }
+        Observable.fromCallable(() -> callSlowService()).compose(cache.cached(0)).toBlocking().single();
+        Observable.fromCallable(() -> callSlowService()).compose(cache.cached(repeatingCount)).toBlocking().single();
+
+        watch.stop();
+
+        CacheStats stats = cache.stats();
+        assertThat(cache.size(), is((long) repeatingCount));
+        assertThat(stats.evictionCount(), is(1L));
+
+        long misses = stats.missCount();
+        Observable.fromCallable(() -> callSlowService()).compose(cache.cached(0)).toBlocking().single();
+        assertThat(cache.stats().missCount(), is(misses));
+
+    }
+
+    @Test
+    public void testCached_Errors_Not_Cached() {
+        speedInMillis = 100;
+
+        ObservableCache<String, UUID> cache = new ObservableCache<>(100, 1, TimeUnit.MINUTES, ticker());
+        int[] calls = {0};
+
+        Observable<UUID> observable = Observable.fromCallable(() -> {
+            if (calls[0]++ == 0) {
+                throwTestException("first call");
+            }
+            return callSlowService();
+        })
+        .compose(cache.cached("request"));
+
+        String first = observable.map(uuid -> uuid.toString()).onErrorReturn(e -> e.getMessage()).toBlocking().single();
+        UUID second = observable.toBlocking().single();
+        UUID third = observable.toBlocking().single();
+
+        watch.stop();
+
+        assertThat(first, is("first call"));
+        assertThat(third, is(second));
+        assertThat(calls[0], is(2));
+
+    }
+
+}
@@ -0,0 +1,142 @@
+package rx;
+
+import static java.util.Collections.singletonList;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import rx.schedulers.Schedulers;
+import util.AbstractTest;
+import util.FutureObservables;
+
+public class TestObservableCompletableFuture extends AbstractTest {
+
+    @Test(expected=MockTestException.class)
+    public void testCompletableFuture_Timeout_ImplementsOnErrorReturn() {
+        speedInMillis = 1000;
+
+        CompletableFuture<UUID> future = new CompletableFuture<>();
+
+        try {
+            FutureObservables.from(future, speedInMillis, TimeUnit.MILLISECONDS)
+            .onErrorReturn(throwable -> {
+                // timeout is reached here
+                throw new MockTestException(throwable);
+            })
+            .toBlocking()
+            .single();
+        } finally {
+            watch.stop();
+            assertThat(future.isCancelled(), is(true));
+            assertThat(watch.elapsed(TimeUnit.MILLISECONDS), greaterThanOrEqualTo(speedInMillis));
+        }
+
+    }
+
+    @Test
+    public void testCompletableFuture_With_Background_Process_Finishing_Future() throws Exception {
+        speedInMillis = 2000;
+
+        CompletableFuture<UUID> future = new CompletableFuture<>();
+
+        // set the future in the background, delaying first
+        Observable.fromCallable(()-> UUID.randomUUID())
+            .subscribeOn(Schedulers.io())
+            .delay(speedInMillis, TimeUnit.MILLISECONDS)
+            .doOnNext(uuid -> future.complete(uuid))
+            .subscribe();
+
+        // no scheduler needed, the value is pushed by the thread completing the future
+        strings = FutureObservables.from(future, speedInMillis + speedInMillis / 2, TimeUnit.MILLISECONDS)
+        .map(uuid -> {
+            showCallableThreadName();
+            return uuid.toString();
+        })
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+        assertThat(strings, is(singletonList(future.get().toString())));
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), greaterThanOrEqualTo(speedInMillis));
+
+    }
+
+    @Test(expected=MockTestException.class)
+    public void testCompletableFuture_Exceptionally() {
+
+        CompletableFuture<UUID> future = CompletableFuture.supplyAsync(() -> {
+            throwTestException("This exception is exposed without its CompletionException wrapper");
+            return UUID.randomUUID();
+        });
+
+        FutureObservables.from(future)
+        .toBlocking()
+        .single();
+
+    }
+
+    @Test
+    public void testCompletableFuture_Unsubscribe_Cancels_Future() {
+        speedInMillis = 1000;
+
+        CompletableFuture<UUID> future = new CompletableFuture<>();
+
+        FutureObservables.from(future)
+        .subscribe()
+        .unsubscribe();
+
+        watch.stop();
+
+        assertThat(future.isCancelled(), is(true));
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), lessThan(speedInMillis));
+
+    }
+
+    @Test
+    public void testCompletableFuture_Thousands_Pending_Without_Blocked_Threads() {
+        repeatingCount = 10_000;
+
+        int threadsBefore = Thread.activeCount();
+        AtomicInteger received = new AtomicInteger();
+
+        List<CompletableFuture<UUID>> futures = IntStream.range(0, repeatingCount)
+                .mapToObj(index -> new CompletableFuture<UUID>())
+                .collect(Collectors.toList());
+
+        futures.forEach(future -> FutureObservables.from(future).subscribe(uuid -> received.incrementAndGet()));
+
+        // every subscription is pending and not a single thread waits in Future.get()
+        assertThat(blockedInFutureGet(), is(0L));
+        assertThat(Thread.activeCount(), lessThanOrEqualTo(threadsBefore));
+
+        futures.forEach(future -> future.complete(UUID.randomUUID()));
+
+        watch.stop();
+
+        assertThat(received.get(), is(repeatingCount));
+
+    }
+
+    private static long blockedInFutureGet() {
+        return Thread.getAllStackTraces().values().stream()
+                .filter(stack -> Stream.of(stack).anyMatch(frame ->
+                        frame.getClassName().equals(CompletableFuture.class.getName())
+                                && (frame.getMethodName().equals("waitingGet") || frame.getMethodName().equals("timedGet"))))
+                .count();
+    }
+
+}
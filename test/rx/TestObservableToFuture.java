@@ -0,0 +1,159 @@
+package rx;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import rx.schedulers.Schedulers;
+import util.AbstractTest;
+import util.FutureObservables;
+
+public class TestObservableToFuture extends AbstractTest {
+
+    @Test
+    public void testFromCallable_ToFuture_Does_Not_Block() {
+        speedInMillis = 1000;
+
+        CompletableFuture<UUID> future = FutureObservables.toFuture(Observable.fromCallable(() -> {
+
+            showCallableThreadName();
+
+            return callSlowService();
+        })
+        .subscribeOn(Schedulers.io()));
+
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), lessThan(speedInMillis));
+
+        future.join();
+
+        watch.stop();
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), greaterThanOrEqualTo(speedInMillis));
+
+    }
+
+    @Test
+    public void testAsync_ToFuture_Composes() {
+        speedInMillis = 500;
+
+        String combined = FutureObservables.toFuture(callSlowServiceAsync())
+                .thenCombine(FutureObservables.toFuture(callSlowServiceAsync()), (first, second) -> first + "/" + second)
+                .join();
+
+        watch.stop();
+
+        assertThat(combined.length(), is(73));
+        // both calls are in flight together
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), lessThan(speedInMillis * 2));
+
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testFromCallable_ToFuture_Of_MultipleResults() {
+        speedInMillis = 500;
+        repeatingCount = 3;
+
+        try {
+
+            join(FutureObservables.toFuture(Observable.fromCallable(() -> {
+
+                callSlowService();
+
+                return UUID.randomUUID();
+            })
+            .repeat(repeatingCount)));
+
+        } finally {
+            watch.stop();
+
+            assertThat(watch.elapsed(TimeUnit.MILLISECONDS), greaterThanOrEqualTo(speedInMillis));
+        }
+    }
+
+    @Test(expected=NoSuchElementException.class)
+    public void testFromCallable_ToFuture_Of_NoResult() {
+        repeatingCount = 0;
+
+        join(FutureObservables.toFuture(Observable.fromCallable(() -> UUID.randomUUID())
+            .repeat(repeatingCount)));
+
+    }
+
+    @Test(expected = MockTestException.class)
+    public void testFromCallable_ToFuture_ThrowsException() {
+        speedInMillis = 1000;
+
+        join(FutureObservables.toFuture(Observable.fromCallable(() -> {
+
+            callSlowService();
+
+            throwTestException("This exception is exposed");
+
+            return UUID.randomUUID();
+        })));
+
+    }
+
+    @Test
+    public void testDefer_Repeating_ToListFuture() {
+        speedInMillis = 500;
+        repeatingCount = 3;
+
+        strings = FutureObservables.toListFuture(Observable.defer(() -> {
+            return Observable.fromCallable(() -> {
+
+                callSlowService();
+
+                return UUID.randomUUID();
+            });
+        })
+        .subscribeOn(Schedulers.io())
+        .repeat(repeatingCount)
+        .map(uuid -> uuid.toString()))
+        .join();
+
+        watch.stop();
+        assertThat(strings, hasSize(repeatingCount));
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), greaterThanOrEqualTo(speedInMillis * repeatingCount));
+
+    }
+
+    @Test
+    public void testAsync_ToFuture_Cancel_Unsubscribes() {
+        speedInMillis = 1000;
+
+        AtomicBoolean unsubscribed = new AtomicBoolean();
+
+        CompletableFuture<UUID> future = FutureObservables.toFuture(callSlowServiceAsync()
+                .doOnUnsubscribe(() -> unsubscribed.set(true)));
+        future.cancel(true);
+
+        watch.stop();
+
+        assertThat(unsubscribed.get(), is(true));
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), lessThan(speedInMillis));
+
+    }
+
+    /**
+     * Exposes the exception the future failed with, as <code>toBlocking().single()</code> would throw it.
+     */
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+}
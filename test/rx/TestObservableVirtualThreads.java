@@ -0,0 +1,204 @@
+package rx;
+
+import static java.util.Collections.singletonList;
+import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+import rx.schedulers.Schedulers;
+import util.AbstractTest;
+import util.VirtualThreadScheduler;
+
+/**
+ * The threaded scenarios of the other tests with {@link VirtualThreadScheduler} in place of {@link Schedulers#io()}.
+ * Skipped below Java 21.
+ */
+public class TestObservableVirtualThreads extends AbstractTest {
+
+    @Before
+    public void assumeVirtualThreads() {
+        assumeTrue(VirtualThreadScheduler.isSupported());
+    }
+
+    @Override
+    protected boolean isVirtualTime() {
+        // virtual threads are not tracked by the VirtualClock
+        return false;
+    }
+
+    @Test
+    public void testDefer_ThreadedSubscription_WithSubscription() {
+        speedInMillis = 1000;
+
+        Observable.defer(() -> {
+
+            showDeferThreadName();
+
+            return Observable.fromCallable(() -> {
+
+                showCallableThreadName();
+
+                return callSlowService();
+            })
+            .subscribeOn(VirtualThreadScheduler.get());
+        })
+        .subscribe();
+
+        watch.stop();
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), lessThan(speedInMillis));
+
+    }
+
+    @Test
+    public void testCallable_Threaded_WithSubscription_SlowSubcriber() {
+        speedInMillis = 1000;
+
+        Observable.fromCallable(() -> {
+
+            showCallableThreadName();
+
+            return callSlowService();
+        })
+        .subscribeOn(VirtualThreadScheduler.get())
+        .doOnNext(uuid -> {
+            showObserverThreadName();
+        })
+        .toBlocking()
+        .single();
+
+        watch.stop();
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), greaterThanOrEqualTo(speedInMillis));
+
+    }
+
+    @Test
+    public void testDefer_Repeating_Create_Threaded_Sync() {
+        speedInMillis = 500;
+        repeatingCount = 3;
+
+        strings = Observable.defer(()->{
+          return  Observable.create(subscriber ->{
+              showCallableThreadName();
+              UUID uuid = callSlowService();
+              subscriber.onNext(uuid);
+              subscriber.onCompleted();
+          }).subscribeOn(VirtualThreadScheduler.get());
+        })
+        .repeat(repeatingCount, VirtualThreadScheduler.get())
+        .map(uuid -> uuid.toString())
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+        assertThat(strings, hasSize(repeatingCount));
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), greaterThanOrEqualTo(speedInMillis * repeatingCount));
+
+    }
+
+    @Test
+    public void testObservable_Future_On_VirtualThread() throws Exception {
+        speedInMillis = 1000;
+
+        CompletableFuture<UUID> future = new CompletableFuture<>();
+
+        Observable.fromCallable(() -> future.complete(callSlowService()))
+            .subscribeOn(VirtualThreadScheduler.get())
+            .subscribe();
+
+        strings = Observable.from(future, VirtualThreadScheduler.get())
+        .map(uuid -> uuid.toString())
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+        assertThat(strings, is(singletonList(future.get().toString())));
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), greaterThanOrEqualTo(speedInMillis));
+
+    }
+
+    @Test
+    public void testDefer_Repeating_Threaded_Observer_Async() {
+        speedInMillis = 1000;
+        repeatingCount = 50;
+
+        fanOut(VirtualThreadScheduler.get());
+
+        watch.stop();
+
+        assertThat(Sets.newLinkedHashSet(strings), hasSize(repeatingCount));
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), both(greaterThanOrEqualTo(speedInMillis)).and(lessThan(speedInMillis * 2 - speedInMillis / 2)));
+
+    }
+
+    @Test
+    public void testMerge_FanOut_VirtualThreads_Against_Io() {
+        speedInMillis = 1000;
+        repeatingCount = 2000;
+
+        // a cached pool like io(), but of its own: no idle worker left by an earlier test, none left for the next ones
+        ExecutorService cached = Executors.newCachedThreadPool(threadFactory("fan-out-io-%d"));
+        int ioThreads;
+        try {
+            ioThreads = fanOut(Schedulers.from(cached));
+        } finally {
+            cached.shutdown();
+        }
+        assertThat(Sets.newHashSet(strings), hasSize(repeatingCount));
+
+        int virtualThreads = fanOut(VirtualThreadScheduler.get());
+        assertThat(Sets.newHashSet(strings), hasSize(repeatingCount));
+
+        watch.stop();
+
+        // io() starts a platform thread per blocked call, virtual threads only need the carriers
+        String threads = "platform threads for " + repeatingCount + " blocking calls: io " + ioThreads + ", virtual " + virtualThreads;
+        assertThat(threads, virtualThreads * 10, lessThan(ioThreads));
+        assertThat(threads, virtualThreads, lessThan(repeatingCount / 10));
+
+    }
+
+    /**
+     * Merges <code>repeatingCount</code> blocking calls subscribed on the scheduler and returns the number of platform
+     * threads added at the peak, as seen by the calls themselves: the JVM-wide peak is left to {@link #usage}.
+     */
+    private int fanOut(Scheduler scheduler) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        int threadsBefore = threads.getThreadCount();
+        AtomicInteger peakThreads = new AtomicInteger(threadsBefore);
+
+        Observable<UUID> slow = Observable.fromCallable(() -> {
+            peakThreads.accumulateAndGet(threads.getThreadCount(), Math::max);
+            return callSlowService();
+        })
+        .subscribeOn(scheduler);
+
+        strings = Observable.merge(Observable.range(0, repeatingCount).map(index -> slow))
+        .map(uuid -> uuid.toString())
+        .toList()
+        .toBlocking()
+        .single();
+
+        return peakThreads.get() - threadsBefore;
+    }
+
+}
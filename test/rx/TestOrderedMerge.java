@@ -0,0 +1,212 @@
+package rx;
+
+import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.google.common.collect.ContiguousSet;
+import com.google.common.collect.DiscreteDomain;
+import com.google.common.collect.Range;
+
+import rx.observers.TestSubscriber;
+import rx.schedulers.Schedulers;
+import util.AbstractTest;
+import util.FanOut;
+import util.LatencyModel;
+import util.OrderedMerge;
+import util.StreamVerifier;
+
+public class TestOrderedMerge extends AbstractTest {
+
+    @Test
+    public void testDefer_Repeating_Async_Ordered() {
+        speedInMillis = 1000;
+        repeatingCount = 50;
+
+        // the later calls often answer first
+        LatencyModel shuffled = LatencyModel.uniform(speedInMillis / 2, speedInMillis, random);
+
+        List<Integer> indexes = FanOut.range(repeatingCount, index -> callServiceAsync(shuffled).map(uuid -> index))
+        .maxConcurrency(repeatingCount)
+        .ordered()
+        .build()
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        assertThat(indexes, contains(range(0, repeatingCount)));
+        // concurrent as a merge, not 50 calls one after the other as a concat
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), both(greaterThanOrEqualTo(speedInMillis / 2)).and(lessThan(speedInMillis * 2 - speedInMillis / 2)));
+
+    }
+
+    @Test
+    public void testSlow_Head_Holds_Back_At_Most_Max_Concurrency() {
+        speedInMillis = 100;
+        repeatingCount = 100;
+        int maxConcurrency = 8;
+
+        AtomicInteger subscribed = new AtomicInteger();
+        AtomicInteger subscribedWhenHeadDone = new AtomicInteger();
+
+        List<Integer> indexes = Observable.range(0, repeatingCount)
+        .compose(OrderedMerge.flatMap(index -> {
+            long speed = index == 0 ? speedInMillis * 5 : speedInMillis;
+            return callServiceAsync(speed)
+                    .doOnSubscribe(subscribed::incrementAndGet)
+                    .doOnCompleted(() -> {
+                        if (index == 0) {
+                            subscribedWhenHeadDone.set(subscribed.get());
+                        }
+                    })
+                    .map(uuid -> index);
+        }, maxConcurrency))
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        assertThat(indexes, contains(range(0, repeatingCount)));
+        // the 7 after the head completed long before it, but no other was subscribed
+        assertThat(subscribedWhenHeadDone.get(), is(maxConcurrency));
+
+    }
+
+    @Test
+    public void testMulti_Item_Sources_Backpressured_In_Order() {
+        repeatingCount = 1000;
+        int itemsPerSource = 100;
+
+        // each source emits more than its buffer of 4, it must wait for the drain to request more
+        List<Integer> items = Observable.range(0, repeatingCount)
+        .compose(OrderedMerge.flatMap(index -> Observable.range(index * itemsPerSource, itemsPerSource)
+                .subscribeOn(Schedulers.computation()), 16, 4))
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        assertThat(items, contains(range(0, repeatingCount * itemsPerSource)));
+
+    }
+
+    @Test
+    public void testDownstream_Requests_Respected() {
+        repeatingCount = 100;
+
+        AtomicInteger subscribed = new AtomicInteger();
+        TestSubscriber<Integer> subscriber = new TestSubscriber<>(0L);
+
+        Observable.range(0, repeatingCount)
+        .compose(OrderedMerge.flatMap(index -> Observable.just(index).doOnSubscribe(subscribed::incrementAndGet), 10))
+        .subscribe(subscriber);
+
+        subscriber.assertNoValues();
+        // nothing requested: only the first 10 sources run, their results wait in the buffer
+        assertThat(subscribed.get(), is(10));
+
+        subscriber.requestMore(3);
+        subscriber.assertValues(0, 1, 2);
+        assertThat(subscribed.get(), is(13));
+
+        subscriber.requestMore(Long.MAX_VALUE);
+        subscriber.assertValueCount(repeatingCount);
+        subscriber.assertCompleted();
+
+        watch.stop();
+
+    }
+
+    @Test
+    public void testError_Fails_Fast() {
+        speedInMillis = 1000;
+        repeatingCount = 50;
+
+        try {
+            Observable.range(0, repeatingCount)
+            .compose(OrderedMerge.flatMap(index -> index == 10
+                    ? Observable.<Integer>error(new MockTestException("source " + index))
+                    : callSlowServiceAsync().map(uuid -> index), 16))
+            .toList()
+            .toBlocking()
+            .single();
+
+            fail("The error of source 10 is expected to fail the stream");
+        } catch (MockTestException e) {
+            assertThat(e.getMessage(), is("source 10"));
+        }
+
+        watch.stop();
+
+        // emitted without waiting for the sources before it
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), lessThan(speedInMillis));
+
+    }
+
+    @Test
+    public void testMillion_Sources_Verified_Ordered() {
+        repeatingCount = 1_000_000;
+        int maxConcurrency = 64;
+
+        AtomicInteger alive = new AtomicInteger();
+        AtomicInteger peakAlive = new AtomicInteger();
+
+        StreamVerifier<Integer> verifier = new StreamVerifier<Integer>(ticker())
+                .expectCount(repeatingCount)
+                .expectOrdered(Integer::compare)
+                .verify(FanOut.range(repeatingCount, index -> Observable.fromCallable(() -> index)
+                        .subscribeOn(Schedulers.computation())
+                        .doOnSubscribe(() -> peakAlive.accumulateAndGet(alive.incrementAndGet(), Math::max))
+                        .doOnUnsubscribe(alive::decrementAndGet))
+                        .maxConcurrency(maxConcurrency)
+                        .ordered()
+                        .build());
+
+        watch.stop();
+
+        assertThat(verifier.count(), is((long) repeatingCount));
+        assertThat(peakAlive.get(), lessThanOrEqualTo(maxConcurrency));
+
+    }
+
+    @Test
+    public void testAsync_Upstream_Completion_Never_Drops_The_Last_Source() {
+        repeatingCount = 20_000;
+        int sourcesPerRun = 8;
+
+        // the upstream completes on its own thread while the last sources are still being subscribed and drained
+        for (int run = 0; run < repeatingCount; run++) {
+            List<Integer> items = Observable.range(0, sourcesPerRun)
+            .subscribeOn(Schedulers.computation())
+            .compose(OrderedMerge.flatMap(index -> Observable.just(index)
+                    .subscribeOn(Schedulers.computation()), 4))
+            .toList()
+            .toBlocking()
+            .single();
+
+            assertThat("run " + run, items.size(), is(sourcesPerRun));
+        }
+
+        watch.stop();
+
+    }
+
+    private static Integer[] range(int from, int to) {
+        return ContiguousSet.create(Range.closedOpen(from, to), DiscreteDomain.integers()).toArray(new Integer[0]);
+    }
+}
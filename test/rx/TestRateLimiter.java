@@ -0,0 +1,159 @@
+package rx;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import rx.schedulers.Schedulers;
+import util.AbstractTest;
+import util.RateLimiter;
+import util.RateLimiter.ExceededException;
+import util.TestSchedulersHook;
+
+public class TestRateLimiter extends AbstractTest {
+
+    private RateLimiter limiter(long permitsPerSecond, int burst) {
+        return new RateLimiter(permitsPerSecond, 1, TimeUnit.SECONDS, burst, Schedulers.computation(), ticker());
+    }
+
+    @Test
+    public void testLimit_Paces_Repeating_Calls() {
+        speedInMillis = 10;
+        repeatingCount = 25;
+
+        // a burst of 5, then one call every 50 ms
+        RateLimiter limiter = limiter(20, 5);
+
+        strings = Observable.range(0, repeatingCount)
+        .compose(limiter.limit())
+        .flatMap(index -> callSlowServiceAsync())
+        .map(uuid -> uuid.toString())
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        assertThat(strings, hasSize(repeatingCount));
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), greaterThanOrEqualTo(20 * 50L - 10));
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), lessThan(20 * 50L * 3 / 2));
+
+    }
+
+    @Test
+    public void testProtect_Delays_Calls_Without_Blocking_Threads() {
+        speedInMillis = 10;
+        repeatingCount = 100;
+
+        RateLimiter limiter = limiter(200, 10);
+
+        strings = Observable.range(0, repeatingCount)
+        .flatMap(index -> callSlowServiceAsync()
+                .compose(limiter.protect()))
+        .map(uuid -> uuid.toString())
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        assertThat(strings, hasSize(repeatingCount));
+        // 90 calls at 5 ms apart
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), greaterThanOrEqualTo(90 * 5L - 10));
+        // the 90 waits were timers
+        assertThat(TestSchedulersHook.getInstance().computationStats().threads(),
+                lessThanOrEqualTo(Runtime.getRuntime().availableProcessors()));
+
+    }
+
+    @Test
+    public void testProtect_Or_Reject_Fails_Fast_Over_Burst() {
+        speedInMillis = 200;
+        repeatingCount = 20;
+
+        RateLimiter limiter = limiter(1, 5);
+
+        strings = Observable.range(0, repeatingCount)
+        .flatMap(index -> callSlowServiceAsync()
+                .compose(limiter.protectOrReject())
+                .map(uuid -> "ok")
+                .onErrorReturn(e -> e.getClass().getSimpleName()))
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        assertThat(strings.stream().filter("ok"::equals).count(), is(5L));
+        assertThat(strings.stream().filter(ExceededException.class.getSimpleName()::equals).count(), is(15L));
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), lessThan(speedInMillis * 2));
+
+    }
+
+    @Test
+    public void testLimit_Requests_One_At_A_Time() {
+        repeatingCount = 1_000_000;
+
+        RateLimiter limiter = limiter(1000, 1);
+        AtomicInteger emitted = new AtomicInteger();
+
+        List<Integer> limited = Observable.range(0, repeatingCount)
+        .doOnNext(index -> emitted.incrementAndGet())
+        .compose(limiter.limit())
+        .take(10)
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        assertThat(limited, hasSize(10));
+        // the rest of the range was never produced
+        assertThat(emitted.get(), lessThan(100));
+
+    }
+
+    @Test
+    public void testPermits_Exact_Under_Contention() throws InterruptedException {
+        repeatingCount = 10_000;
+        int threads = 8;
+
+        // nothing refills during the test
+        RateLimiter limiter = new RateLimiter(1, 1, TimeUnit.HOURS, 100, Schedulers.computation(), ticker());
+        AtomicInteger granted = new AtomicInteger();
+
+        List<Thread> callers = Observable.range(0, threads)
+        .map(index -> new Thread(() -> {
+            for (int i = 0; i < repeatingCount; i++) {
+                if (limiter.tryAcquire()) {
+                    granted.incrementAndGet();
+                }
+            }
+        }))
+        .toList()
+        .toBlocking()
+        .single();
+
+        for (Thread caller : callers) {
+            caller.start();
+        }
+        for (Thread caller : callers) {
+            caller.join();
+        }
+
+        watch.stop();
+
+        assertThat(granted.get(), is(100));
+
+    }
+
+}
@@ -0,0 +1,225 @@
+package rx;
+
+import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+import rx.observers.TestSubscriber;
+import util.AbstractTest;
+import util.RequestCollapser;
+
+public class TestRequestCollapser extends AbstractTest {
+
+    private final AtomicInteger bulkCalls = new AtomicInteger();
+
+    private Observable<Map<Integer, UUID>> countedBulkCall(List<Integer> keys) {
+        bulkCalls.incrementAndGet();
+        return callSlowServiceBulkAsync(keys);
+    }
+
+    private Observable<Map<String, UUID>> countedStringBulkCall(List<String> keys) {
+        bulkCalls.incrementAndGet();
+        return callSlowServiceBulkAsync(keys);
+    }
+
+    @Test
+    public void testDefer_Repeating_Collapsed_Async() {
+        speedInMillis = 1000;
+        speedPerBulkItemInMicros = 100;
+        repeatingCount = 50;
+
+        RequestCollapser<Integer, UUID> collapser = new RequestCollapser<>(this::countedBulkCall, repeatingCount, 10, TimeUnit.MILLISECONDS);
+
+        strings = Observable.range(0, repeatingCount)
+        .flatMap(index -> collapser.get(index))
+        .map(uuid -> uuid.toString())
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        assertThat(Sets.newHashSet(strings), hasSize(repeatingCount));
+        // one round-trip for all of them
+        assertThat(bulkCalls.get(), is(1));
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), both(greaterThanOrEqualTo(speedInMillis)).and(lessThan(speedInMillis + speedInMillis / 2)));
+
+    }
+
+    @Test
+    public void testCollapsed_By_Size() {
+        speedInMillis = 500;
+        speedPerBulkItemInMicros = 100;
+        repeatingCount = 1000;
+
+        RequestCollapser<Integer, UUID> collapser = new RequestCollapser<>(this::countedBulkCall, 100, 1, TimeUnit.MINUTES);
+
+        strings = Observable.range(0, repeatingCount)
+        .flatMap(index -> collapser.get(index))
+        .map(uuid -> uuid.toString())
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        assertThat(strings, hasSize(repeatingCount));
+        // full batches never wait for their window
+        assertThat(bulkCalls.get(), is(repeatingCount / 100));
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), both(greaterThanOrEqualTo(speedInMillis)).and(lessThan(speedInMillis * 2)));
+
+    }
+
+    @Test
+    public void testCollapsed_By_Window() {
+        speedInMillis = 500;
+        repeatingCount = 3;
+        long windowInMillis = 200;
+
+        RequestCollapser<Integer, UUID> collapser = new RequestCollapser<>(this::countedBulkCall, 100, windowInMillis, TimeUnit.MILLISECONDS);
+
+        strings = Observable.range(0, repeatingCount)
+        .flatMap(index -> collapser.get(index))
+        .map(uuid -> uuid.toString())
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        assertThat(strings, hasSize(repeatingCount));
+        assertThat(bulkCalls.get(), is(1));
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), both(greaterThanOrEqualTo(windowInMillis + speedInMillis)).and(lessThan(windowInMillis + speedInMillis * 2)));
+
+    }
+
+    @Test
+    public void testSame_Key_Shares_One_Result() {
+        speedInMillis = 100;
+        repeatingCount = 10;
+
+        RequestCollapser<String, UUID> collapser = new RequestCollapser<>(keys -> {
+            assertThat(keys, is(Collections.singletonList("same")));
+            return countedStringBulkCall(keys);
+        }, repeatingCount, 10, TimeUnit.MILLISECONDS);
+
+        strings = Observable.range(0, repeatingCount)
+        .flatMap(index -> collapser.get("same"))
+        .map(uuid -> uuid.toString())
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        assertThat(strings, hasSize(repeatingCount));
+        assertThat(Sets.newHashSet(strings), hasSize(1));
+
+    }
+
+    @Test
+    public void testError_Isolated_Per_Request() {
+        speedInMillis = 100;
+        repeatingCount = 100;
+
+        // the backend has no answer for odd keys
+        RequestCollapser<Integer, UUID> collapser = new RequestCollapser<>(keys -> callSlowServiceBulkAsync(keys)
+                .map(results -> {
+                    Map<Integer, UUID> evens = new HashMap<>();
+                    results.forEach((key, uuid) -> {
+                        if (key % 2 == 0) {
+                            evens.put(key, uuid);
+                        }
+                    });
+                    return evens;
+                }), repeatingCount, 10, TimeUnit.MILLISECONDS);
+
+        strings = Observable.range(0, repeatingCount)
+        .flatMap(index -> collapser.get(index)
+                .map(uuid -> "found")
+                .onErrorReturn(e -> e.getClass().getSimpleName()))
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        assertThat(strings.stream().filter("found"::equals).count(), is((long) repeatingCount / 2));
+        assertThat(strings.stream().filter(NoSuchElementException.class.getSimpleName()::equals).count(), is((long) repeatingCount / 2));
+
+    }
+
+    @Test
+    public void testThrowing_Subscriber_Isolated_From_Its_Batch() {
+        speedInMillis = 100;
+        repeatingCount = 10;
+
+        RequestCollapser<Integer, UUID> collapser = new RequestCollapser<>(this::countedBulkCall, repeatingCount, 1, TimeUnit.MINUTES);
+
+        // no error handler: its onNext failure is thrown back at the collapser
+        collapser.get(0).subscribe(uuid -> throwTestException("Thrown by the first subscriber"));
+
+        List<TestSubscriber<UUID>> others = new ArrayList<>();
+        for (int index = 1; index < repeatingCount; index++) {
+            TestSubscriber<UUID> subscriber = new TestSubscriber<>();
+            others.add(subscriber);
+            collapser.get(index).subscribe(subscriber);
+        }
+
+        for (TestSubscriber<UUID> subscriber : others) {
+            subscriber.awaitTerminalEvent(speedInMillis * 10, TimeUnit.MILLISECONDS);
+            subscriber.assertValueCount(1);
+            subscriber.assertCompleted();
+        }
+
+        watch.stop();
+
+        assertThat(bulkCalls.get(), is(1));
+
+    }
+
+    @Test
+    public void testBulk_Failure_Fails_Only_Its_Batch() {
+        speedInMillis = 100;
+        repeatingCount = 100;
+
+        RequestCollapser<Integer, UUID> collapser = new RequestCollapser<>(keys -> {
+            if (bulkCalls.incrementAndGet() == 1) {
+                throwTestException("first batch");
+            }
+            return callSlowServiceBulkAsync(keys);
+        }, repeatingCount / 2, 1, TimeUnit.MINUTES);
+
+        strings = Observable.range(0, repeatingCount)
+        .flatMap(index -> collapser.get(index)
+                .map(uuid -> "found")
+                .onErrorReturn(e -> e.getMessage()))
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        assertThat(strings.stream().filter("found"::equals).count(), is((long) repeatingCount / 2));
+        assertThat(strings.stream().filter("first batch"::equals).count(), is((long) repeatingCount / 2));
+
+    }
+
+}
@@ -0,0 +1,113 @@
+package rx;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import rx.schedulers.Schedulers;
+import util.AbstractTest;
+import util.ResourceUsage;
+
+public class TestResourceUsage extends AbstractTest {
+
+    private static final int MB = 1024 * 1024;
+
+    private static volatile Object garbage;
+
+    @Test
+    public void testAllocation_Counted_On_Io_Threads() {
+        assumeTrue(ResourceUsage.isAllocationSupported());
+        repeatingCount = 10;
+
+        ResourceUsage measured = ResourceUsage.start();
+
+        List<Integer> sizes = Observable.range(0, repeatingCount)
+        .flatMap(index -> Observable.fromCallable(() -> new byte[MB].length)
+                .subscribeOn(Schedulers.io()))
+        .toList()
+        .toBlocking()
+        .single();
+
+        measured.stop();
+        watch.stop();
+
+        assertThat(sizes, hasSize(repeatingCount));
+        assertThat(measured.allocatedBytes(), greaterThanOrEqualTo((long) repeatingCount * MB));
+        // the whole test so far, the same arrays
+        assertThat(usage.stop().allocatedBytes(), greaterThanOrEqualTo(measured.allocatedBytes()));
+
+    }
+
+    @Test
+    public void testLittle_Allocation_Is_Not_Overcounted() {
+        assumeTrue(ResourceUsage.isAllocationSupported());
+        repeatingCount = 1000;
+
+        ResourceUsage measured = ResourceUsage.start();
+
+        long sum = 0;
+        for (int i = 0; i < repeatingCount; i++) {
+            sum += i;
+        }
+
+        measured.stop();
+        watch.stop();
+
+        assertThat(sum, greaterThanOrEqualTo(0L));
+        assertThat(measured.allocatedBytes(), lessThan((long) MB));
+
+    }
+
+    @Test
+    public void testGc_And_Threads_Counted() throws InterruptedException {
+        int threads = 20;
+
+        ResourceUsage measured = ResourceUsage.start();
+        CountDownLatch done = new CountDownLatch(1);
+
+        for (int i = 0; i < threads; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    done.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+        // System.gc() is a no-op under -XX:+DisableExplicitGC, garbage is not
+        long collections = gcCount();
+        while (gcCount() == collections) {
+            garbage = new byte[MB];
+        }
+
+        measured.stop();
+        done.countDown();
+        watch.stop();
+
+        assertThat(measured.gcCount(), greaterThanOrEqualTo(1L));
+        // threads of earlier tests may end meanwhile, the count is the JVM's
+        assertThat(measured.endThreads(), greaterThanOrEqualTo(threads));
+        assertThat(measured.peakThreads(), greaterThanOrEqualTo(measured.endThreads()));
+
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+}
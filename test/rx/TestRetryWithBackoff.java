@@ -0,0 +1,163 @@
+package rx;
+
+import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import rx.schedulers.Schedulers;
+import util.AbstractTest;
+import util.RetryWithBackoff;
+
+public class TestRetryWithBackoff extends AbstractTest {
+
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    /**
+     * Draws the longest delay every time.
+     */
+    private static final class MaximumJitter extends Random {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public double nextDouble() {
+            return 1;
+        }
+    }
+
+    private Observable<UUID> failingTimes(int failures) {
+        return Observable.fromCallable(() -> {
+
+            callSlowService();
+
+            if (attempts.incrementAndGet() <= failures) {
+                throwTestException("This exception is retried");
+            }
+
+            return UUID.randomUUID();
+        });
+    }
+
+    @Test
+    public void testFromCallable_ToBlockingSingle_Retried() {
+        speedInMillis = 100;
+
+        RetryWithBackoff retry = new RetryWithBackoff(3, 100, 1000, TimeUnit.MILLISECONDS, e -> e instanceof MockTestException,
+                random, Schedulers.computation());
+
+        failingTimes(2)
+        .retryWhen(retry)
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        assertThat(attempts.get(), is(3));
+        assertThat(retry.retries(), is(2L));
+        // three calls, and at most 100 + 200ms of backoff
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), both(greaterThanOrEqualTo(speedInMillis * 3)).and(lessThan(speedInMillis * 3 + 300 + speedInMillis)));
+
+    }
+
+    @Test
+    public void testBackoff_Exponential_Capped() {
+        repeatingCount = 5;
+
+        // 100, 200, 400, 400, 400
+        RetryWithBackoff retry = new RetryWithBackoff(repeatingCount, 100, 400, TimeUnit.MILLISECONDS, e -> true,
+                new MaximumJitter(), Schedulers.computation());
+
+        failingTimes(repeatingCount)
+        .retryWhen(retry)
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        assertThat(attempts.get(), is(repeatingCount + 1));
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), both(greaterThanOrEqualTo(1500L)).and(lessThan(1500L + 200)));
+
+    }
+
+    @Test(expected = MockTestException.class)
+    public void testRetries_Exhausted() {
+        speedInMillis = 100;
+
+        try {
+
+            failingTimes(Integer.MAX_VALUE)
+            .retryWhen(new RetryWithBackoff(3, 10, 100, TimeUnit.MILLISECONDS, e -> e instanceof MockTestException))
+            .toBlocking()
+            .single();
+
+        } finally {
+            watch.stop();
+
+            assertThat(attempts.get(), is(4));
+            assertThat(watch.elapsed(TimeUnit.MILLISECONDS), greaterThanOrEqualTo(speedInMillis * 4));
+        }
+
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNot_Retryable_Exception() {
+        speedInMillis = 100;
+
+        try {
+
+            Observable.fromCallable(() -> {
+
+                attempts.incrementAndGet();
+                callSlowService();
+
+                throw new IllegalStateException("This exception is not retried");
+            })
+            .retryWhen(new RetryWithBackoff(3, 10, 100, TimeUnit.MILLISECONDS, e -> e instanceof MockTestException))
+            .toBlocking()
+            .single();
+
+        } finally {
+            watch.stop();
+
+            assertThat(attempts.get(), is(1));
+            assertThat(watch.elapsed(TimeUnit.MILLISECONDS), both(greaterThanOrEqualTo(speedInMillis)).and(lessThan(speedInMillis * 2)));
+        }
+
+    }
+
+    @Test
+    public void testAsync_Retries_Hold_No_Thread() {
+        speedInMillis = 100;
+        repeatingCount = 1000;
+        failureRate = 0.5;
+
+        RetryWithBackoff retry = new RetryWithBackoff(20, 10, 100, TimeUnit.MILLISECONDS, e -> e instanceof MockTestException,
+                random, Schedulers.computation());
+        int threads = Thread.activeCount();
+
+        strings = Observable.range(0, repeatingCount)
+        .flatMap(index -> callSlowServiceAsync()
+                .retryWhen(retry))
+        .map(uuid -> uuid.toString())
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        // every call made it, about as many retries as calls, on the timers of the computation scheduler
+        assertThat(strings.size(), is(repeatingCount));
+        assertThat(retry.retries(), both(greaterThanOrEqualTo(repeatingCount / 2L)).and(lessThan(repeatingCount * 2L)));
+        assertThat(Thread.activeCount(), lessThan(threads + Runtime.getRuntime().availableProcessors() + 10));
+
+    }
+
+}
@@ -0,0 +1,98 @@
+package rx;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import rx.schedulers.Schedulers;
+import util.AbstractTest;
+import util.SchedulerStats;
+import util.TestSchedulersHook;
+
+public class TestSchedulerStats extends AbstractTest {
+
+    private final int cores = Runtime.getRuntime().availableProcessors();
+
+    @Test
+    public void testComputation_Blocked_Shows_Queue_Wait() {
+        speedInMillis = 100;
+        repeatingCount = cores * 4;
+
+        strings = Observable.range(0, repeatingCount)
+        .flatMap(index -> Observable.fromCallable(() -> callSlowService())
+                .subscribeOn(Schedulers.computation()))
+        .map(uuid -> uuid.toString())
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        SchedulerStats stats = TestSchedulersHook.getInstance().computationStats();
+        long speedInNanos = TimeUnit.MILLISECONDS.toNanos(speedInMillis);
+
+        assertThat(strings, hasSize(repeatingCount));
+        // one thread per core, each ran 4 calls one after the other
+        assertThat(stats.threads(), lessThanOrEqualTo(cores));
+        assertThat(stats.peakActive(), lessThanOrEqualTo(cores));
+        // recorded when the tasks start, the run time of the last one may still be in flight
+        assertThat(stats.queueWait().count(), is((long) repeatingCount));
+        assertThat(stats.runTime().percentile(50), lessThan(speedInNanos * 2));
+        // the latency is queueing: the last calls waited for 3 others
+        assertThat(stats.queueWait().max(), greaterThanOrEqualTo(speedInNanos * 3 * 9 / 10));
+
+    }
+
+    @Test
+    public void testIo_Grows_Threads_Instead_Of_Queueing() {
+        speedInMillis = 100;
+        repeatingCount = cores * 4;
+
+        strings = Observable.range(0, repeatingCount)
+        .flatMap(index -> Observable.fromCallable(() -> callSlowService())
+                .subscribeOn(Schedulers.io()))
+        .map(uuid -> uuid.toString())
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        SchedulerStats stats = TestSchedulersHook.getInstance().ioStats();
+
+        assertThat(strings, hasSize(repeatingCount));
+        assertThat(stats.threads(), greaterThanOrEqualTo(repeatingCount));
+        assertThat(stats.peakActive(), is(repeatingCount));
+        assertThat(stats.queueWait().percentile(99), lessThan(TimeUnit.MILLISECONDS.toNanos(speedInMillis)));
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), lessThan(speedInMillis * 2));
+
+    }
+
+    @Test
+    public void testDelayed_Task_Wait_Excludes_Delay() {
+        speedInMillis = 500;
+
+        strings = Observable.timer(speedInMillis, TimeUnit.MILLISECONDS, Schedulers.computation())
+        .map(tick -> "done")
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        SchedulerStats stats = TestSchedulersHook.getInstance().computationStats();
+
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), greaterThanOrEqualTo(speedInMillis));
+        assertThat(stats.queueWait().count(), is(1L));
+        assertThat(stats.queueWait().max(), lessThan(TimeUnit.MILLISECONDS.toNanos(speedInMillis / 5)));
+
+    }
+
+}
@@ -0,0 +1,166 @@
+package rx;
+
+import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import rx.schedulers.Schedulers;
+import util.AbstractTest;
+import util.SingleFlight;
+
+public class TestSingleFlight extends AbstractTest {
+
+    private final SingleFlight<String> singleFlight = new SingleFlight<>();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private Observable<UUID> slow() {
+        return Observable.fromCallable(() -> {
+
+            calls.incrementAndGet();
+            return callSlowService();
+        })
+        .subscribeOn(Schedulers.io());
+    }
+
+    @Test
+    public void testDefer_Repeating_Threaded_Observer_Async_Single_Flight() {
+        speedInMillis = 1000;
+        repeatingCount = 50;
+
+        List<Observable<UUID>> observables = Lists.newLinkedList();
+
+        Observable<UUID> slow = slow().compose(singleFlight.flight("slow"));
+
+        for (int i = 0; i < repeatingCount; i++) {
+            observables.add(slow);
+        }
+
+        strings = Observable.merge(observables)
+        .map(uuid -> uuid.toString())
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        // every subscriber got the result of the one call
+        assertThat(strings, hasSize(repeatingCount));
+        assertThat(Sets.newHashSet(strings), hasSize(1));
+        assertThat(calls.get(), is(1));
+        assertThat(singleFlight.inFlight(), is(0));
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), both(greaterThanOrEqualTo(speedInMillis)).and(lessThan(speedInMillis * 2)));
+
+    }
+
+    @Test
+    public void testLater_Subscriber_Starts_Fresh_Call() {
+        speedInMillis = 500;
+
+        Observable<UUID> slow = slow().compose(singleFlight.flight("slow"));
+
+        UUID first = slow.toBlocking().single();
+        UUID second = slow.toBlocking().single();
+
+        watch.stop();
+
+        assertThat(second, not(first));
+        assertThat(calls.get(), is(2));
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), greaterThanOrEqualTo(speedInMillis * 2));
+
+    }
+
+    @Test
+    public void testDifferent_Keys_Fly_Separately() {
+        speedInMillis = 500;
+        repeatingCount = 10;
+
+        strings = Observable.range(0, repeatingCount)
+        .flatMap(index -> slow().compose(singleFlight.flight(index % 2 == 0 ? "even" : "odd")))
+        .map(uuid -> uuid.toString())
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        assertThat(strings, hasSize(repeatingCount));
+        assertThat(Sets.newHashSet(strings), hasSize(2));
+        assertThat(calls.get(), is(2));
+
+    }
+
+    @Test
+    public void testError_Shared_By_The_Flight() {
+        speedInMillis = 500;
+        repeatingCount = 10;
+
+        Observable<UUID> failing = Observable.<UUID>fromCallable(() -> {
+
+            calls.incrementAndGet();
+            callSlowService();
+            throwTestException("slow failure");
+            return null;
+        })
+        .subscribeOn(Schedulers.io())
+        .compose(singleFlight.flight("failing"));
+
+        strings = Observable.range(0, repeatingCount)
+        .flatMap(index -> failing
+                .map(uuid -> uuid.toString())
+                .onErrorReturn(e -> e.getMessage()))
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        assertThat(strings, hasSize(repeatingCount));
+        assertThat(Sets.newHashSet(strings), is(Sets.newHashSet("slow failure")));
+        assertThat(calls.get(), is(1));
+        assertThat(singleFlight.inFlight(), is(0));
+
+    }
+
+    @Test
+    public void testUnsubscribe_Of_Every_Subscriber_Frees_The_Key() {
+        speedInMillis = 1000;
+        repeatingCount = 10;
+
+        Observable<UUID> slow = slow().compose(singleFlight.flight("slow"));
+
+        strings = Observable.range(0, repeatingCount)
+        .flatMap(index -> slow
+                .timeout(speedInMillis / 2, TimeUnit.MILLISECONDS)
+                .map(uuid -> uuid.toString())
+                .onErrorReturn(e -> "timeout"))
+        .toList()
+        .toBlocking()
+        .single();
+
+        assertThat(singleFlight.inFlight(), is(0));
+
+        UUID fresh = slow.toBlocking().single();
+
+        watch.stop();
+
+        assertThat(Sets.newHashSet(strings), is(Sets.newHashSet("timeout")));
+        assertThat(fresh, not((UUID) null));
+        assertThat(calls.get(), is(2));
+
+    }
+
+}
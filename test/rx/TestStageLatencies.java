@@ -0,0 +1,100 @@
+package rx;
+
+import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import rx.schedulers.Schedulers;
+import util.AbstractTest;
+import util.LatencyHistogram;
+
+public class TestStageLatencies extends AbstractTest {
+
+    @Test
+    public void testStages_Of_Threaded_Subscription() {
+        speedInMillis = 500;
+        long mapInMillis = 100;
+
+        Observable.fromCallable(() -> callSlowService())
+        .compose(latencies.stage("callable"))
+        .subscribeOn(Schedulers.io())
+        .compose(latencies.stage("io"))
+        .map(uuid -> {
+            callService(mapInMillis);
+            return uuid.toString();
+        })
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        LatencyHistogram callable = latencies.histogram("callable first item");
+        LatencyHistogram io = latencies.histogram("io first item");
+        LatencyHistogram map = latencies.histogram("io onNext");
+
+        assertThat(callable.count(), is(1L));
+        assertThat(callable.max(), greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(speedInMillis)));
+        // the io probe sees the callable plus the hop to the io thread
+        assertThat(io.max(), greaterThanOrEqualTo(callable.max()));
+        assertThat(map.max(), both(greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(mapInMillis)))
+                .and(lessThan(TimeUnit.MILLISECONDS.toNanos(speedInMillis))));
+
+    }
+
+    @Test
+    public void testStages_Of_Repeating_Async_Calls() {
+        speedInMillis = 100;
+        repeatingCount = 1000;
+
+        strings = Observable.range(0, repeatingCount)
+        .flatMap(index -> callSlowServiceAsync()
+                .compose(latencies.stage("call")))
+        .compose(latencies.stage("merged"))
+        .map(uuid -> uuid.toString())
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        LatencyHistogram call = latencies.histogram("call first item");
+
+        assertThat(strings, hasSize(repeatingCount));
+        assertThat(call.count(), is((long) repeatingCount));
+        assertThat(call.percentile(50), greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(speedInMillis)));
+        assertThat(latencies.histogram("merged onNext").count(), is((long) repeatingCount));
+
+    }
+
+    @Test
+    public void testHistogram_Percentiles_Within_Precision() {
+        repeatingCount = 100_000;
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= repeatingCount; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(i));
+        }
+
+        watch.stop();
+
+        // 1/16 of precision per power of two
+        assertPercentile(histogram, 50, TimeUnit.MICROSECONDS.toNanos(50_000));
+        assertPercentile(histogram, 99, TimeUnit.MICROSECONDS.toNanos(99_000));
+        assertPercentile(histogram, 99.9, TimeUnit.MICROSECONDS.toNanos(99_900));
+        assertThat(histogram.percentile(100), is(histogram.max()));
+
+    }
+
+    private static void assertPercentile(LatencyHistogram histogram, double percentile, long expected) {
+        assertThat(histogram.percentile(percentile), both(greaterThanOrEqualTo(expected)).and(lessThanOrEqualTo(expected + expected / 16)));
+    }
+
+}
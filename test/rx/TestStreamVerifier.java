@@ -0,0 +1,183 @@
+package rx;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import rx.schedulers.Schedulers;
+import util.AbstractTest;
+import util.IdGenerator;
+import util.StreamVerifier;
+
+public class TestStreamVerifier extends AbstractTest {
+
+    @Test
+    public void testTens_Of_Millions_Without_Collecting() {
+        repeatingCount = 10_000_000;
+        IdGenerator generator = IdGenerator.counterBlocks(1024);
+
+        // 4 merged sources, each on its own thread
+        Observable<UUID> merged = Observable.merge(Observable.range(0, 4)
+                .map(source -> Observable.range(0, repeatingCount / 4)
+                        .map(index -> generator.next())
+                        .subscribeOn(Schedulers.io())));
+
+        StreamVerifier<UUID> verifier = new StreamVerifier<UUID>(ticker())
+                .expectCount(repeatingCount)
+                .expectProbablyDistinct(StreamVerifier.uuidFunnel(), repeatingCount, 0.01)
+                .verify(merged);
+
+        watch.stop();
+        System.out.println(">>Verified [" + testName() + "] " + verifier.summary());
+
+        // what toList() would have held as strings is over a GB, the verifier holds a 12 MB filter
+        assertThat(verifier.count(), is((long) repeatingCount));
+        assertThat(verifier.gaps().count(), is((long) repeatingCount));
+
+    }
+
+    @Test
+    public void testDuplicate_Fails_Fast() {
+        repeatingCount = 1000;
+        AtomicInteger emitted = new AtomicInteger();
+        UUID repeated = UUID.randomUUID();
+
+        try {
+            new StreamVerifier<UUID>(ticker())
+            .expectCount(repeatingCount)
+            .expectDistinct(uuid -> uuid)
+            .verify(Observable.range(0, repeatingCount)
+                    .doOnNext(index -> emitted.incrementAndGet())
+                    .map(index -> index == 100 || index == 200 ? repeated : UUID.randomUUID()));
+
+            fail("The duplicate is expected to fail the stream");
+        } catch (AssertionError e) {
+            assertThat(e.getMessage(), containsString("Duplicate item " + repeated + ", after 201 items"));
+        }
+
+        watch.stop();
+
+        assertThat(emitted.get(), is(201));
+
+    }
+
+    @Test
+    public void testReplayed_Stream_Fails_Probably_Distinct() {
+        repeatingCount = 100_000;
+
+        Observable<UUID> replayed = Observable.range(0, repeatingCount / 2)
+                .map(index -> new UUID(index, index))
+                .repeat(2);
+
+        try {
+            new StreamVerifier<UUID>(ticker())
+            .expectProbablyDistinct(StreamVerifier.uuidFunnel(), repeatingCount, 0.01)
+            .verify(replayed);
+
+            fail("The replay is expected to fail the stream");
+        } catch (AssertionError e) {
+            assertThat(e.getMessage(), containsString("possible duplicates"));
+        }
+
+        watch.stop();
+
+    }
+
+    @Test
+    public void testOrder_And_Count_Checked() {
+        repeatingCount = 100;
+
+        new StreamVerifier<Integer>(ticker())
+        .expectCount(repeatingCount)
+        .expectOrdered(Comparator.naturalOrder())
+        .verify(Observable.range(0, repeatingCount));
+
+        try {
+            new StreamVerifier<Integer>(ticker())
+            .expectOrdered(Comparator.naturalOrder())
+            .verify(Observable.just(1, 2, 4, 3, 5));
+
+            fail("The order is expected to fail the stream");
+        } catch (AssertionError e) {
+            assertThat(e.getMessage(), containsString("Item 3 out of order after 4"));
+        }
+
+        try {
+            new StreamVerifier<Integer>(ticker())
+            .expectCount(repeatingCount)
+            .verify(Observable.range(0, repeatingCount - 1));
+
+            fail("The count is expected to fail the stream");
+        } catch (AssertionError e) {
+            assertThat(e.getMessage(), containsString("Expected 100 items, after 99 items"));
+        }
+
+        watch.stop();
+
+    }
+
+    @Test
+    public void testSlow_Item_Fails_Max_Gap() {
+        speedInMillis = 200;
+        repeatingCount = 5;
+        AtomicInteger calls = new AtomicInteger();
+
+        try {
+            new StreamVerifier<UUID>(ticker())
+            .expectMaxGap(speedInMillis / 2, TimeUnit.MILLISECONDS)
+            .verify(Observable.range(0, repeatingCount)
+                    .concatMap(index -> (index == 2 ? callSlowServiceAsync() : callServiceAsync(0))
+                            .doOnSubscribe(calls::incrementAndGet)));
+
+            fail("The slow call is expected to fail the stream");
+        } catch (AssertionError e) {
+            assertThat(e.getMessage(), containsString("Waited"));
+        }
+
+        watch.stop();
+
+        // the calls after the slow one were not made
+        assertThat(calls.get(), is(3));
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), lessThan(speedInMillis * 2));
+
+    }
+
+    @Test
+    public void testLow_Throughput_Fails_On_Completion() {
+        speedInMillis = 50;
+        repeatingCount = 5;
+
+        try {
+            new StreamVerifier<UUID>(ticker())
+            .expectCount(repeatingCount)
+            .expectMinThroughput(100)
+            .verify(Observable.range(0, repeatingCount)
+                    .concatMap(index -> callSlowServiceAsync()));
+
+            fail("20 items/s is expected to fail the stream");
+        } catch (AssertionError e) {
+            assertThat(e.getMessage(), containsString("Throughput of"));
+        }
+
+        watch.stop();
+
+    }
+
+    @Test(expected = MockTestException.class)
+    public void testStream_Error_Rethrown() {
+        new StreamVerifier<Integer>(ticker())
+        .verify(Observable.range(0, 10)
+                .concatWith(Observable.error(new MockTestException("This exception is exposed"))));
+
+    }
+
+}
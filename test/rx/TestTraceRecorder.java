@@ -0,0 +1,109 @@
+package rx;
+
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.Sets;
+
+import rx.schedulers.Schedulers;
+import util.AbstractTest;
+import util.TraceRecorder;
+import util.TraceRecorder.Record;
+
+public class TestTraceRecorder extends AbstractTest {
+
+    @Test
+    public void testDefer_ThreadedSubscription_Timeline() {
+        speedInMillis = 500;
+
+        Observable.defer(() -> {
+
+            showDeferThreadName();
+
+            return Observable.fromCallable(() -> {
+
+                showCallableThreadName();
+
+                return callSlowService();
+            })
+            .subscribeOn(Schedulers.io());
+        })
+        .doOnNext(uuid -> showObserverThreadName())
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        List<Record> timeline = trace.timeline();
+        assertThat(timeline.stream().map(Record::getStage).collect(Collectors.toList()), is(Arrays.asList("defer", "callable", "observer")));
+        assertThat(timeline.get(0).getThreadId(), is(Thread.currentThread().getId()));
+        assertThat(timeline.get(1).getThreadId(), not(timeline.get(0).getThreadId()));
+        // the observer runs where the callable emitted
+        assertThat(timeline.get(2).getThreadId(), is(timeline.get(1).getThreadId()));
+        assertThat(timeline.get(2).getNanosSinceStart() - timeline.get(1).getNanosSinceStart(), greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(speedInMillis)));
+
+    }
+
+    @Test
+    public void testDefer_Repeating_Threaded_Observer_Async_Timeline() {
+        speedInMillis = 100;
+        repeatingCount = 50;
+
+        Observable<UUID> slow = Observable.fromCallable(() -> {
+
+            showCallableThreadName();
+            return callSlowService();
+        })
+        .subscribeOn(Schedulers.io());
+
+        strings = Observable.merge(Observable.range(0, repeatingCount).map(index -> slow))
+        .map(uuid -> uuid.toString())
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        List<Record> timeline = trace.timeline();
+        assertThat(timeline, hasSize(repeatingCount));
+        assertThat(timeline.stream().map(Record::getStage).collect(Collectors.toList()), everyItem(is("callable")));
+        // all calls ran at the same time, each on its own thread
+        assertThat(Sets.newHashSet(timeline.stream().map(Record::getThreadId).collect(Collectors.toList())), hasSize(repeatingCount));
+        assertThat(timeline.get(repeatingCount - 1).getNanosSinceStart() - timeline.get(0).getNanosSinceStart(), lessThan(TimeUnit.MILLISECONDS.toNanos(speedInMillis)));
+
+    }
+
+    @Test
+    public void testRing_Keeps_Latest_Records() {
+        repeatingCount = 10_000;
+
+        TraceRecorder recorder = new TraceRecorder(Ticker.systemTicker(), 1000);
+
+        for (int i = 0; i < repeatingCount; i++) {
+            recorder.record(i % 2 == 0 ? "even" : "odd");
+        }
+
+        watch.stop();
+
+        // rounded up to 1024
+        assertThat(recorder.timeline(), hasSize(1024));
+        assertThat(recorder.dropped(), is((long) repeatingCount - 1024));
+        assertThat(recorder.timeline().get(1023).getStage(), is("odd"));
+
+    }
+
+}
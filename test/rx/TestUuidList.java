@@ -0,0 +1,148 @@
+package rx;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+import util.AbstractTest;
+import util.IdGenerator;
+import util.ResourceUsage;
+import util.UuidList;
+import util.UuidSet;
+
+public class TestUuidList extends AbstractTest {
+
+    private static long heapUsedAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    @Test
+    public void testDefer_Repeating_Collected_Compact() {
+        speedInMillis = 10;
+        repeatingCount = 1000;
+
+        UuidList uuids = Observable.range(0, repeatingCount)
+        .flatMap(index -> callSlowServiceAsync())
+        .compose(UuidList.collect())
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        assertThat(uuids.size(), is(repeatingCount));
+        assertThat(uuids.distinctCount(), is(repeatingCount));
+        assertThat(uuids.toStrings(), hasSize(repeatingCount));
+        assertThat(uuids.toStrings().get(0), is(uuids.get(0).toString()));
+
+    }
+
+    @Test
+    public void testMillion_Results_Memory() {
+        repeatingCount = 1_000_000;
+        ids = IdGenerator.threadLocalRandom();
+
+        Observable<UUID> results = Observable.range(0, repeatingCount)
+                .map(index -> ids.next());
+
+        long heapBefore = heapUsedAfterGc();
+        ResourceUsage asStrings = ResourceUsage.start();
+
+        strings = results
+        .map(uuid -> uuid.toString())
+        .toList()
+        .toBlocking()
+        .single();
+        Set<String> distinctStrings = Sets.newLinkedHashSet(strings);
+
+        asStrings.stop();
+        long stringsRetained = heapUsedAfterGc() - heapBefore;
+        assertThat(distinctStrings, hasSize(repeatingCount));
+        strings = null;
+        distinctStrings = null;
+
+        ResourceUsage compact = ResourceUsage.start();
+
+        UuidList uuids = results
+                .compose(UuidList.collect())
+                .toBlocking()
+                .single();
+        int distinct = uuids.distinctCount();
+
+        compact.stop();
+        long compactRetained = uuids.sizeInBytes();
+
+        watch.stop();
+
+        System.out.println(">>Memory per result: strings retained " + stringsRetained / repeatingCount + " B, allocated "
+                + asStrings.allocatedBytes() / repeatingCount + " B; compact retained " + compactRetained / repeatingCount
+                + " B, allocated " + compact.allocatedBytes() / repeatingCount + " B");
+
+        assertThat(distinct, is(repeatingCount));
+        // the list of strings and the set checking them against 16 bytes of bits
+        assertThat(compactRetained * 5, lessThan(stringsRetained));
+        // the UUID objects of the results and the table of the set are allocated either way
+        assertThat(compact.allocatedBytes(), lessThan(asStrings.allocatedBytes() * 3 / 4));
+        assertThat(compact.gcCount(), lessThanOrEqualTo(asStrings.gcCount()));
+
+    }
+
+    @Test
+    public void testSet_Rejects_Duplicates() {
+        repeatingCount = 10_000;
+
+        UuidSet set = new UuidSet();
+        IdGenerator generator = IdGenerator.timeOrdered();
+        UuidList uuids = new UuidList();
+        for (int i = 0; i < repeatingCount; i++) {
+            uuids.add(generator.next());
+        }
+
+        for (int i = 0; i < repeatingCount; i++) {
+            assertThat(set.add(uuids.get(i)), is(true));
+        }
+        for (int i = 0; i < repeatingCount; i++) {
+            assertThat(set.add(uuids.get(i)), is(false));
+        }
+        assertThat(set.add(new UUID(0, 0)), is(true));
+        assertThat(set.add(new UUID(0, 0)), is(false));
+
+        watch.stop();
+
+        assertThat(set.size(), is(repeatingCount + 1));
+        assertThat(set.contains(uuids.get(repeatingCount / 2)), is(true));
+        assertThat(set.contains(new UUID(0, 0)), is(true));
+        assertThat(set.contains(UUID.randomUUID()), is(false));
+
+    }
+
+    @Test
+    public void testTo_Strings_On_Demand() {
+        UuidList uuids = new UuidList(1);
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        uuids.add(first);
+        uuids.add(second);
+        uuids.add(first);
+
+        watch.stop();
+
+        assertThat(uuids.toStrings(), contains(first.toString(), second.toString(), first.toString()));
+        assertThat(uuids.distinctCount(), is(2));
+
+    }
+
+}
@@ -0,0 +1,171 @@
+package rx;
+
+import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Sets;
+
+import rx.schedulers.Schedulers;
+import rx.subjects.PublishSubject;
+import util.AbstractTest;
+import util.VirtualClock;
+
+public class TestVirtualTime extends AbstractTest {
+
+    @Override
+    protected boolean isVirtualTime() {
+        return true;
+    }
+
+    @Test
+    public void testFromCallable_Repeating_Thousands_Of_Slow_Calls() {
+        speedInMillis = 1000;
+        repeatingCount = 1000;
+
+        Stopwatch wallClock = Stopwatch.createStarted();
+
+        strings = Observable.fromCallable(() -> {
+
+            callSlowService();
+
+            return UUID.randomUUID();
+        })
+        .repeat(repeatingCount)
+        .map(uuid -> uuid.toString())
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+        wallClock.stop();
+
+        assertThat(strings, hasSize(repeatingCount));
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), is(speedInMillis * repeatingCount));
+        // over 16 minutes of simulated latency
+        assertThat(wallClock.elapsed(TimeUnit.MILLISECONDS), lessThan(speedInMillis * repeatingCount / 100));
+
+    }
+
+    @Test
+    public void testDefer_Repeating_Threaded_Observer_Async() {
+        speedInMillis = 1000;
+        repeatingCount = 200;
+
+        Observable<UUID> slow = Observable.fromCallable(() -> {
+
+            callSlowService();
+
+            return UUID.randomUUID();
+        })
+        .subscribeOn(Schedulers.io());
+
+        strings = Observable.merge(Observable.range(0, repeatingCount).map(index -> slow))
+        .map(uuid -> uuid.toString())
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        assertThat(Sets.newLinkedHashSet(strings), hasSize(repeatingCount));
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), both(greaterThanOrEqualTo(speedInMillis)).and(lessThan(speedInMillis * 2 - speedInMillis / 2)));
+
+    }
+
+    @Test
+    public void testTimeout_Fires_At_Virtual_Deadline() {
+        speedInMillis = 5000;
+
+        try {
+            Observable.never()
+            .timeout(speedInMillis, TimeUnit.MILLISECONDS)
+            .toBlocking()
+            .single();
+
+            fail("The timeout is expected to fire");
+        } catch (RuntimeException e) {
+            // toBlocking() wraps the checked TimeoutException
+            assertThat(e.getCause(), instanceOf(TimeoutException.class));
+        }
+
+        watch.stop();
+
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), is(speedInMillis));
+
+    }
+
+    @Test
+    public void testInterval_Runs_On_Virtual_Time() {
+        speedInMillis = 100;
+        repeatingCount = 10;
+
+        List<Long> ticks = Observable.interval(speedInMillis, TimeUnit.MILLISECONDS)
+        .take(repeatingCount)
+        .toList()
+        .toBlocking()
+        .single();
+
+        watch.stop();
+
+        assertThat(ticks, hasSize(repeatingCount));
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), is(speedInMillis * repeatingCount));
+
+    }
+
+    @Test
+    public void testStalled_Scenario_Fails_Instead_Of_Hanging() {
+        speedInMillis = 1000;
+
+        try {
+            // nothing will ever emit, and no deadline is left for the clock to move to
+            PublishSubject.<UUID>create()
+            .toBlocking()
+            .first();
+
+            fail("The stall is expected to interrupt the test thread");
+        } catch (RuntimeException e) {
+            assertThat(e.getCause(), instanceOf(InterruptedException.class));
+        } finally {
+            Thread.interrupted();
+        }
+
+        watch.stop();
+
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS), is(0L));
+
+    }
+
+    @Test
+    public void testShutdown_Releases_Racing_Sleepers() throws InterruptedException {
+        repeatingCount = 1000;
+
+        for (int run = 0; run < repeatingCount; run++) {
+            VirtualClock racing = new VirtualClock();
+            // released by the clock reaching its deadline or by the shutdown, never left waiting in between
+            Thread sleeper = new Thread(() -> racing.sleep(1, TimeUnit.HOURS));
+            sleeper.start();
+            racing.shutdown();
+
+            sleeper.join(TimeUnit.SECONDS.toMillis(5));
+            assertThat("run " + run, sleeper.isAlive(), is(false));
+        }
+
+        watch.stop();
+
+    }
+
+}
@@ -1,7 +1,13 @@
 package util;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.After;
 import org.junit.Before;
@@ -10,58 +16,290 @@ import org.junit.rules.TestWatcher;
 import org.junit.runner.Description;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.functions.Func0;
+import rx.schedulers.Schedulers;
 
 public abstract class AbstractTest {
 
+    private static final TestSchedulersHook schedulersHook = TestSchedulersHook.getInstance();
+
     @Rule
     public TestNameWatcher testWatcher = new TestNameWatcher();
 
     protected Stopwatch watch;
     protected long speedInMillis;
     protected int repeatingCount;
+    protected long speedPerBulkItemInMicros;
     protected List<String> strings;
     protected List<List<String>> listofStrings;
+    protected VirtualClock clock;
+    protected TraceRecorder trace;
+    protected StageLatencies latencies;
+    protected Random random;
+    protected LatencyModel latency;
+    protected double failureRate;
+    protected IdGenerator ids;
+    protected ResourceUsage usage;
+    
+    // the draws of the simulated service, made from whichever threads call it
+    private Random serviceRandom;
+    // published after defaultLatency, see slowServiceLatency()
+    private volatile LatencyModel defaultLatency;
+    private volatile long defaultLatencySpeed;
     
     @Before
     public void before() {
         speedInMillis = 0;
         repeatingCount = 0;
-        watch = Stopwatch.createStarted();
+        speedPerBulkItemInMicros = 0;
+        long seed = Long.getLong("test.seed", 42);
+        random = new Random(seed);
+        serviceRandom = LatencyModel.perThreadRandom(seed);
+        defaultLatency = LatencyModel.of(System.getProperty("test.latency", "constant"), speedInMillis, serviceRandom);
+        defaultLatencySpeed = speedInMillis;
+        latency = null;
+        failureRate = Double.parseDouble(System.getProperty("test.failureRate", "0"));
+        ids = IdGenerator.of(System.getProperty("test.ids", "secureRandom"));
+        
+        if (isVirtualTime()) {
+            clock = new VirtualClock();
+            clock.register(Thread.currentThread());
+            schedulersHook.useVirtualTime(clock);
+            watch = Stopwatch.createStarted(clock.ticker());
+            trace = new TraceRecorder(clock.ticker());
+            latencies = new StageLatencies(clock.ticker());
+        } else {
+            watch = Stopwatch.createStarted();
+            trace = new TraceRecorder();
+            latencies = new StageLatencies();
+        }
+        schedulersHook.instrument(ticker());
+        usage = ResourceUsage.start();
     }
     
     @After
     public void after() {
-        System.out.println(">>Duration [" + testName() + "] " + watch);
+        usage.stop();
+        System.out.println(">>Duration [" + testName() + "] " + watch + (clock != null ? " (virtual)" : "") + ", " + usage);
+        trace.print(testName(), System.out);
+        latencies.print(testName(), System.out);
+        schedulersHook.printStats(testName(), System.out);
+        
+        if (clock != null) {
+            schedulersHook.useRealTime();
+            clock.shutdown();
+        }
+    }
+    
+    /**
+     * Runs the simulated service latency and the io(), computation() and newThread() schedulers on a {@link VirtualClock}
+     * so <code>watch</code> measures virtual time.  Enabled for the whole suite with <code>-Dtest.virtualTime=true</code>.
+     */
+    protected boolean isVirtualTime() {
+        return Boolean.getBoolean("test.virtualTime");
+    }
+    
+    /**
+     * The time source of the test: the {@link VirtualClock} in virtual time, the system ticker otherwise.
+     */
+    protected Ticker ticker() {
+        return clock != null ? clock.ticker() : Ticker.systemTicker();
+    }
+    
+    /**
+     * Daemon threads named after the format, that take part in the virtual clock in virtual time.
+     */
+    protected ThreadFactory threadFactory(String nameFormat) {
+        ThreadFactory daemons = new ThreadFactoryBuilder().setNameFormat(nameFormat).setDaemon(true).build();
+        if (clock == null) {
+            return daemons;
+        }
+        
+        VirtualClock virtualClock = clock;
+        return runnable -> {
+            Thread thread = daemons.newThread(runnable);
+            virtualClock.register(thread);
+            return thread;
+        };
     }
     
     protected String testName() {
         return testWatcher.testName;
     }
     
+    /*
+     * The thread names are recorded in the trace and printed as a timeline after the test,
+     * printing them here would serialize the threads on System.out
+     */
+    
     protected void showDeferThreadName() {
-        System.out.println(">" + testName() + " (defer)-> " + Thread.currentThread());
+        trace.record("defer");
     }
     
     protected void showCallableThreadName() {
-        System.out.println(">" + testName() + " (callable)-> " + Thread.currentThread());
+        trace.record("callable");
     }
     
     protected void showObserverThreadName() {
-        System.out.println(">" + testName() + " (observer)-> " + Thread.currentThread());
+        trace.record("observer");
     }
     
     protected UUID callSlowService() {
-        return callService(speedInMillis);
+        UUID uuid = callService(slowServiceLatency());
+        failAtFailureRate();
+        return uuid;
+    }
+    
+    /**
+     * Latency of the slow service: <code>latency</code> when the test sets one, otherwise the model named by
+     * <code>-Dtest.latency</code> (see {@link LatencyModel#of(String, long, Random)}) around <code>speedInMillis</code>,
+     * constant by default.  The service is called from many threads at once, its random models draw from
+     * {@link LatencyModel#perThreadRandom(long)} seeded with <code>-Dtest.seed</code>.
+     */
+    protected LatencyModel slowServiceLatency() {
+        if (latency != null) {
+            return latency;
+        }
+        // the speed is read first: once it is the current one, so is the model published before it
+        long speed = defaultLatencySpeed;
+        LatencyModel model = defaultLatency;
+        if (speed != speedInMillis) {
+            // the test changed speedInMillis after before() built the model
+            synchronized (this) {
+                model = defaultLatency;
+                if (defaultLatencySpeed != speedInMillis) {
+                    model = LatencyModel.of(System.getProperty("test.latency", "constant"), speedInMillis, serviceRandom);
+                    defaultLatency = model;
+                    defaultLatencySpeed = speedInMillis;
+                }
+            }
+        }
+        return model;
+    }
+    
+    /**
+     * Fails the slow service calls at <code>failureRate</code>, from <code>-Dtest.failureRate</code> by default.
+     */
+    private void failAtFailureRate() {
+        if (failureRate > 0 && serviceRandom.nextDouble() < failureRate) {
+            throwTestException("Simulated failure of the slow service");
+        }
+    }
+    
+    protected UUID callService(LatencyModel latency) {
+        long micros = latency.nextMicros();
+        if (clock != null) {
+            clock.sleep(micros, TimeUnit.MICROSECONDS);
+        } else {
+            try {
+                TimeUnit.MICROSECONDS.sleep(micros);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        
+        return ids.next();
     }
     
     protected UUID callService(long milliSpeed) {
-        try {
-            Thread.sleep(milliSpeed);
-        } catch (InterruptedException e) {
-            throw new IllegalStateException(e);
+        if (clock != null) {
+            clock.sleep(milliSpeed);
+        } else {
+            try {
+                Thread.sleep(milliSpeed);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
         }
         
-        return UUID.randomUUID();
+        return ids.next();
+    }
+    
+    protected Observable<UUID> callSlowServiceAsync() {
+        return callServiceAsync(slowServiceLatency())
+                .doOnNext(uuid -> failAtFailureRate());
+    }
+    
+    /**
+     * Non-blocking version of {@link #callService(long)}: the response is emitted from a timer on the computation scheduler,
+     * so in-flight calls hold no thread while they wait.  Unsubscribing cancels the call.
+     */
+    protected Observable<UUID> callServiceAsync(long milliSpeed) {
+        return Observable.timer(milliSpeed, TimeUnit.MILLISECONDS, Schedulers.computation())
+                .map(tick -> ids.next());
+    }
+    
+    /**
+     * {@link #callServiceAsync(long)} with a latency drawn from <code>latency</code> for every subscription.
+     */
+    protected Observable<UUID> callServiceAsync(LatencyModel latency) {
+        return Observable.defer(() -> Observable.timer(latency.nextMicros(), TimeUnit.MICROSECONDS, Schedulers.computation()))
+                .map(tick -> ids.next());
+    }
+    
+    /**
+     * Slow service with a heavy tail: most calls take about <code>speedInMillis</code>, one in a hundred more than
+     * 20 times that, up to 50 times.
+     */
+    protected Observable<UUID> callSlowServiceHeavyTailAsync() {
+        return callServiceAsync(LatencyModel.pareto(speedInMillis, 1.5, speedInMillis * 50, serviceRandom));
+    }
+    
+    protected CompletableFuture<UUID> callSlowServiceFuture() {
+        return callServiceFuture(slowServiceLatency().nextMicros(), TimeUnit.MICROSECONDS, () -> {
+            UUID uuid = ids.next();
+            failAtFailureRate();
+            return uuid;
+        });
+    }
+    
+    /**
+     * {@link CompletableFuture} flavour of {@link #callServiceAsync(long)}.  Cancelling the future cancels the timer.
+     */
+    protected CompletableFuture<UUID> callServiceFuture(long milliSpeed) {
+        return callServiceFuture(milliSpeed, TimeUnit.MILLISECONDS, ids::next);
+    }
+    
+    private CompletableFuture<UUID> callServiceFuture(long delay, TimeUnit unit, Func0<UUID> response) {
+        CompletableFuture<UUID> future = new CompletableFuture<>();
+        
+        Scheduler.Worker timer = Schedulers.computation().createWorker();
+        timer.schedule(() -> {
+            try {
+                future.complete(response.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }, delay, unit);
+        future.whenComplete((uuid, throwable) -> timer.unsubscribe());
+        
+        return future;
+    }
+    
+    protected <K> Observable<Map<K, UUID>> callSlowServiceBulkAsync(List<K> keys) {
+        return callServiceBulkAsync(keys, speedInMillis, speedPerBulkItemInMicros);
+    }
+    
+    /**
+     * Bulk flavour of {@link #callServiceAsync(long)}: one UUID per key, for one round-trip of <code>milliSpeed</code>
+     * plus <code>microSpeedPerItem</code> for every key, the way a backend pays its fixed cost once per batch.
+     */
+    protected <K> Observable<Map<K, UUID>> callServiceBulkAsync(List<K> keys, long milliSpeed, long microSpeedPerItem) {
+        long micros = TimeUnit.MILLISECONDS.toMicros(milliSpeed) + microSpeedPerItem * keys.size();
+        
+        return Observable.timer(micros, TimeUnit.MICROSECONDS, Schedulers.computation())
+                .map(tick -> {
+                    Map<K, UUID> results = new HashMap<>();
+                    for (K key : keys) {
+                        results.put(key, ids.next());
+                    }
+                    return results;
+                });
     }
     
     protected void throwTestException(String message) {
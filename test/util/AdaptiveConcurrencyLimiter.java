@@ -0,0 +1,231 @@
+package util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Ticker;
+
+import rx.Observable;
+import rx.Subscriber;
+import rx.functions.Func0;
+import rx.functions.Func1;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * A <code>flatMap</code> whose maximum concurrency follows the latency of the calls it makes, AIMD style.
+ *
+ * <pre>
+ * requests.compose(limiter.flatMap(request -&gt; callService(request)))
+ * </pre>
+ * Every call is a sample of latency.  A call slower than <code>tolerance</code> times the fastest recent one means the
+ * dependency queues: the limit is cut by 10%, once per round of calls started under the previous limit.  Any other
+ * call, when at least half the limit is in use, raises the limit by <code>1 / limit</code>: by one per round of
+ * calls.  The limit stays between its minimum and maximum.  Errors count as slow calls.  The fastest recent call is the
+ * fastest of the last one to two windows of 256 samples, so one lucky early call does not set the baseline forever,
+ * and a dependency that got slower for good becomes the new baseline.
+ *
+ * The calls are merged with a maximum concurrency of the maximum limit, so upstream and downstream backpressure are
+ * those of <code>flatMap(mapper, maxLimit)</code>; the calls merged beyond the current limit wait in a queue for a
+ * permit before they are subscribed.  The current limit, the calls in flight and the queue depth are published for
+ * the fan-outs using the limiter.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final int MIN_LATENCY_WINDOW = 256;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final Ticker ticker;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+
+    // guarded by this
+    private double limit;
+    // fastest of the current window of samples, and of the previous one
+    private long windowMinNanos = Long.MAX_VALUE;
+    private long previousWindowMinNanos = Long.MAX_VALUE;
+    private int windowSamples;
+    private long lastDecreaseNanos = Long.MIN_VALUE;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this(initialLimit, minLimit, maxLimit, 2, Ticker.systemTicker());
+    }
+
+    /**
+     * @param tolerance latency, relative to the fastest call, above which the dependency is considered queueing
+     * @param ticker times each call from its subscription to its end, the sample the limit follows
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance, Ticker ticker) {
+        if (minLimit <= 0 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Expected 0 < minLimit <= initialLimit <= maxLimit");
+        }
+        if (tolerance <= 1) {
+            throw new IllegalArgumentException("tolerance must be above 1");
+        }
+
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.ticker = ticker;
+    }
+
+    public <T, R> Observable.Transformer<T, R> flatMap(Func1<? super T, ? extends Observable<? extends R>> mapper) {
+        return source -> Observable.defer(() -> {
+            Gate gate = new Gate();
+            return source.flatMap(item -> gate.<R>call(() -> mapper.call(item)), maxLimit);
+        });
+    }
+
+    private synchronized void onSample(long startNanos, long latencyNanos, boolean failed) {
+        windowMinNanos = Math.min(windowMinNanos, latencyNanos);
+        long minLatencyNanos = Math.min(windowMinNanos, previousWindowMinNanos);
+        if (++windowSamples == MIN_LATENCY_WINDOW) {
+            previousWindowMinNanos = windowMinNanos;
+            windowMinNanos = Long.MAX_VALUE;
+            windowSamples = 0;
+        }
+
+        if (failed || latencyNanos > minLatencyNanos * tolerance) {
+            // the calls started before the last cut do not tell about the current limit
+            if (startNanos > lastDecreaseNanos) {
+                limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+                lastDecreaseNanos = ticker.read();
+            }
+        } else if (inFlight.get() * 2 >= limit) {
+            // additive increase, a whole call once every limit calls
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    public synchronized int limit() {
+        return (int) limit;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Items waiting for the limit to let them through.
+     */
+    public int queueDepth() {
+        return queued.get();
+    }
+
+    /**
+     * The permits of one fan-out: the calls merged beyond the limit wait here to be subscribed.
+     */
+    private final class Gate {
+        private final Queue<Waiting<?>> waiting = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private <R> Observable<R> call(Func0<? extends Observable<? extends R>> call) {
+            return Observable.create(child -> {
+                Waiting<R> entry = new Waiting<>(call, child);
+                queued.incrementAndGet();
+                waiting.offer(entry);
+                // cancelled while waiting, by an error of the fan-out or of downstream
+                child.add(Subscriptions.create(() -> {
+                    if (waiting.remove(entry)) {
+                        queued.decrementAndGet();
+                    }
+                }));
+                drain();
+            });
+        }
+
+        /**
+         * Starts what the limit allows, one thread at a time; the others leave their work to it.
+         */
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+
+            int missed = 1;
+            do {
+                while (active.get() < limit()) {
+                    Waiting<?> next = waiting.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    queued.decrementAndGet();
+                    start(next);
+                }
+
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private <R> void start(Waiting<R> entry) {
+            Subscriber<? super R> child = entry.child;
+            if (child.isUnsubscribed()) {
+                return;
+            }
+            active.incrementAndGet();
+            inFlight.incrementAndGet();
+
+            long startNanos = ticker.read();
+            Observable<? extends R> call;
+            try {
+                call = entry.call.call();
+            } catch (Throwable e) {
+                call = Observable.error(e);
+            }
+
+            AtomicBoolean released = new AtomicBoolean();
+            // shares the subscriptions and the requests of the merge's inner subscriber
+            Subscriber<R> inner = new Subscriber<R>(child) {
+                @Override
+                public void onNext(R r) {
+                    child.onNext(r);
+                }
+
+                @Override
+                public void onError(Throwable e) {
+                    finish(false);
+                    child.onError(e);
+                }
+
+                @Override
+                public void onCompleted() {
+                    finish(true);
+                    child.onCompleted();
+                }
+
+                private void finish(boolean succeeded) {
+                    // sampled while still counted in flight
+                    onSample(startNanos, ticker.read() - startNanos, !succeeded);
+                    release(released);
+                }
+            };
+            child.add(Subscriptions.create(() -> release(released)));
+            call.unsafeSubscribe(inner);
+        }
+
+        private void release(AtomicBoolean released) {
+            if (released.compareAndSet(false, true)) {
+                inFlight.decrementAndGet();
+                active.decrementAndGet();
+                drain();
+            }
+        }
+    }
+
+    private static final class Waiting<R> {
+        private final Func0<? extends Observable<? extends R>> call;
+        private final Subscriber<? super R> child;
+
+        private Waiting(Func0<? extends Observable<? extends R>> call, Subscriber<? super R> child) {
+            this.call = call;
+            this.child = child;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package util;
+
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import rx.Scheduler;
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.plugins.RxJavaPlugins;
+import rx.schedulers.Schedulers;
+import rx.subscriptions.CompositeSubscription;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * Scheduler dedicated to one dependency, in place of the shared io() pool: a fixed number of threads and a bounded
+ * queue, so a slow dependency holds at most its own threads and the calls beyond its queue are rejected at once.
+ *
+ * <pre>
+ * Observable.fromCallable(() -&gt; callSlowService()).subscribeOn(bulkhead)
+ * </pre>
+ * A rejected call fails with a {@link FullException} under the <code>FAIL</code> policy, or runs on the thread that
+ * subscribed under <code>CALLER_RUNS</code>, which slows the caller down to the pace of the bulkhead; a worker still
+ * runs its actions one at a time, in order.  Delayed actions wait on a computation() timer, then go through the
+ * bulkhead like the others: one rejected under <code>FAIL</code> is reported to the {@link RxJavaPlugins} error
+ * handler and not run.
+ */
+public class BulkheadScheduler extends Scheduler {
+
+    public enum RejectionPolicy {
+        FAIL, CALLER_RUNS
+    }
+
+    private final String name;
+    private final RejectionPolicy rejectionPolicy;
+    private final ThreadPoolExecutor executor;
+    private final Scheduler scheduler;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public BulkheadScheduler(String name, int threads, int queueCapacity) {
+        this(name, threads, queueCapacity, RejectionPolicy.FAIL);
+    }
+
+    /**
+     * @param name of the dependency, prefix of the thread names
+     */
+    public BulkheadScheduler(String name, int threads, int queueCapacity, RejectionPolicy rejectionPolicy) {
+        this(name, threads, queueCapacity, rejectionPolicy,
+                new ThreadFactoryBuilder().setNameFormat(name + "-%d").setDaemon(true).build());
+    }
+
+    /**
+     * @param threadFactory creates the threads of the bulkhead, one registered with the virtual clock in virtual time
+     */
+    public BulkheadScheduler(String name, int threads, int queueCapacity, RejectionPolicy rejectionPolicy,
+            ThreadFactory threadFactory) {
+        this.name = name;
+        this.rejectionPolicy = rejectionPolicy;
+
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                threadFactory) {
+
+            @Override
+            protected void beforeExecute(Thread thread, Runnable runnable) {
+                active.incrementAndGet();
+            }
+
+            @Override
+            protected void afterExecute(Runnable runnable, Throwable throwable) {
+                active.decrementAndGet();
+            }
+        };
+        scheduler = Schedulers.from(executor);
+    }
+
+    @Override
+    public Worker createWorker() {
+        return rejectionPolicy == RejectionPolicy.CALLER_RUNS ? new CallerRunsWorker() : new FailingWorker(scheduler.createWorker());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Threads running an action.
+     */
+    public int active() {
+        return active.get();
+    }
+
+    /**
+     * Actions waiting for a thread.
+     */
+    public int queued() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Actions refused because the threads and the queue were full.
+     */
+    public long rejected() {
+        return rejected.get();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Delays on a computation() timer, then schedules through the bulkhead like any other action.
+     */
+    private abstract class BulkheadWorker extends Worker {
+        protected final CompositeSubscription tasks = new CompositeSubscription();
+        private Worker timers;
+
+        @Override
+        public Subscription schedule(Action0 action, long delayTime, TimeUnit unit) {
+            if (delayTime <= 0) {
+                return schedule(action);
+            }
+            if (isUnsubscribed()) {
+                return Subscriptions.unsubscribed();
+            }
+
+            return timers().schedule(() -> {
+                try {
+                    schedule(action);
+                } catch (FullException e) {
+                    // nobody is left to throw it to, the delayed action is not run
+                    RxJavaPlugins.getInstance().getErrorHandler().handleError(e);
+                }
+            }, delayTime, unit);
+        }
+
+        private synchronized Worker timers() {
+            if (timers == null) {
+                timers = Schedulers.computation().createWorker();
+                tasks.add(timers);
+            }
+            return timers;
+        }
+
+        @Override
+        public void unsubscribe() {
+            tasks.unsubscribe();
+        }
+
+        @Override
+        public boolean isUnsubscribed() {
+            return tasks.isUnsubscribed();
+        }
+    }
+
+    private final class FailingWorker extends BulkheadWorker {
+        private final Worker actual;
+
+        private FailingWorker(Worker actual) {
+            this.actual = actual;
+            tasks.add(actual);
+        }
+
+        @Override
+        public Subscription schedule(Action0 action) {
+            try {
+                return actual.schedule(action);
+            } catch (RejectedExecutionException e) {
+                rejected.incrementAndGet();
+                throw new FullException(name, e);
+            }
+        }
+    }
+
+    /**
+     * Runs its actions one at a time and in order, on a thread of the bulkhead or, once rejected, on the caller: the
+     * caller then drains the actions scheduled meanwhile too, none of them starts on the bulkhead before it is done.
+     */
+    private final class CallerRunsWorker extends BulkheadWorker implements Runnable {
+        private final Queue<ScheduledAction> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger wip = new AtomicInteger();
+
+        @Override
+        public Subscription schedule(Action0 action) {
+            if (isUnsubscribed()) {
+                return Subscriptions.unsubscribed();
+            }
+
+            ScheduledAction scheduled = new ScheduledAction(action);
+            queue.offer(scheduled);
+
+            // an action queued behind a running one is the running thread's to start
+            if (wip.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    rejected.incrementAndGet();
+                    run();
+                }
+            }
+            return scheduled;
+        }
+
+        @Override
+        public void run() {
+            do {
+                ScheduledAction scheduled = queue.poll();
+                if (!scheduled.isUnsubscribed() && !isUnsubscribed()) {
+                    try {
+                        scheduled.action.call();
+                    } catch (Throwable t) {
+                        Thread thread = Thread.currentThread();
+                        thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+                    }
+                }
+            } while (wip.decrementAndGet() > 0);
+        }
+    }
+
+    private static final class ScheduledAction implements Subscription {
+        private final Action0 action;
+        private volatile boolean unsubscribed;
+
+        private ScheduledAction(Action0 action) {
+            this.action = action;
+        }
+
+        @Override
+        public void unsubscribe() {
+            unsubscribed = true;
+        }
+
+        @Override
+        public boolean isUnsubscribed() {
+            return unsubscribed;
+        }
+    }
+
+    /**
+     * The threads and the queue of the bulkhead were full, the call was not made.
+     */
+    public static class FullException extends RejectedExecutionException {
+
+        private static final long serialVersionUID = -1783046255829441734L;
+
+        public FullException(String name, Throwable cause) {
+            super("Bulkhead " + name + " full, call not made", cause);
+        }
+    }
+}
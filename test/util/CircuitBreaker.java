@@ -0,0 +1,148 @@
+package util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.common.base.Ticker;
+
+import rx.Observable;
+
+/**
+ * Fails calls fast, without making them, while the dependency behind them is unhealthy.
+ *
+ * <pre>
+ * call.compose(breaker.protect())
+ * </pre>
+ * The breaker is closed until <code>failureThreshold</code> calls in a row have failed.  It then opens: every call fails
+ * at once with an {@link OpenException} for <code>openDuration</code>.  After that one call goes through as a trial,
+ * the others still fail fast; the trial closes the breaker when it succeeds and opens it again when it fails.
+ * Calls started before the breaker last opened no longer count: their outcome, arriving during the trial or after it,
+ * is ignored.  The state, the time it opened and the generation telling the calls apart change together, in one
+ * compare-and-set, so a call is never admitted under one and counted under another.
+ *
+ * Retrying an {@link OpenException} defeats the purpose, leave it out of the retry predicate.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final Ticker ticker;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(new Snapshot(State.CLOSED, 0, 0));
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    public CircuitBreaker(int failureThreshold, long openDuration, TimeUnit unit) {
+        this(failureThreshold, openDuration, unit, Ticker.systemTicker());
+    }
+
+    /**
+     * @param ticker measures how long the breaker stays open before it lets a trial call through
+     */
+    public CircuitBreaker(int failureThreshold, long openDuration, TimeUnit unit, Ticker ticker) {
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException("failureThreshold must be positive");
+        }
+
+        this.failureThreshold = failureThreshold;
+        this.openNanos = unit.toNanos(openDuration);
+        this.ticker = ticker;
+    }
+
+    public <T> Observable.Transformer<T, T> protect() {
+        return call -> Observable.defer(() -> {
+            Snapshot current = snapshot.get();
+            Snapshot admitted;
+            switch (current.state) {
+                case CLOSED:
+                    admitted = current;
+                    break;
+                case OPEN:
+                    Snapshot halfOpen = new Snapshot(State.HALF_OPEN, current.openedNanos, current.generation);
+                    if (ticker.read() - current.openedNanos >= openNanos && snapshot.compareAndSet(current, halfOpen)) {
+                        admitted = halfOpen;
+                        break;
+                    }
+                    return Observable.error(new OpenException());
+                default:
+                    return Observable.error(new OpenException());
+            }
+
+            // a trial unsubscribed before its outcome hands the trial over to the next call
+            AtomicBoolean settled = new AtomicBoolean();
+            return call
+                    .doOnCompleted(() -> {
+                        if (settled.compareAndSet(false, true)) {
+                            onSuccess(admitted);
+                        }
+                    })
+                    .doOnError(e -> {
+                        if (settled.compareAndSet(false, true)) {
+                            onFailure(admitted);
+                        }
+                    })
+                    .doOnUnsubscribe(() -> {
+                        if (settled.compareAndSet(false, true) && admitted.state == State.HALF_OPEN) {
+                            snapshot.compareAndSet(admitted, new Snapshot(State.OPEN, admitted.openedNanos, admitted.generation));
+                        }
+                    });
+        });
+    }
+
+    private void onSuccess(Snapshot admitted) {
+        if (snapshot.get().generation != admitted.generation) {
+            return;
+        }
+        consecutiveFailures.set(0);
+        if (admitted.state == State.HALF_OPEN) {
+            snapshot.compareAndSet(admitted, new Snapshot(State.CLOSED, admitted.openedNanos, admitted.generation));
+        }
+    }
+
+    private void onFailure(Snapshot admitted) {
+        Snapshot current = snapshot.get();
+        if (current.generation != admitted.generation) {
+            return;
+        }
+        if (admitted.state == State.HALF_OPEN || consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            // only the first of the failures opening the breaker moves the generation
+            if (snapshot.compareAndSet(current, new Snapshot(State.OPEN, ticker.read(), current.generation + 1))) {
+                consecutiveFailures.set(0);
+            }
+        }
+    }
+
+    public State state() {
+        return snapshot.get().state;
+    }
+
+    private static final class Snapshot {
+        private final State state;
+        private final long openedNanos;
+        // moves on every time the breaker opens, the calls started before belong to an older one
+        private final long generation;
+
+        private Snapshot(State state, long openedNanos, long generation) {
+            this.state = state;
+            this.openedNanos = openedNanos;
+            this.generation = generation;
+        }
+    }
+
+    /**
+     * The call was not made, the breaker is open.
+     */
+    public static class OpenException extends RuntimeException {
+
+        private static final long serialVersionUID = -3925263154120738206L;
+
+        public OpenException() {
+            super("Circuit breaker open, call not made");
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package util;
+
+import rx.Observable;
+import rx.functions.Func1;
+
+/**
+ * Merges many inner sources created on demand, rather than built into a list up front and passed to
+ * <code>Observable.merge</code>.
+ *
+ * <pre>
+ * FanOut.range(repeatingCount, index -&gt; slow.subscribeOn(Schedulers.io()))
+ *     .maxConcurrency(64)
+ *     .build()
+ * </pre>
+ * The inputs are read with backpressure: an inner source is created when the merge has room for one more, so with a
+ * bounded concurrency the memory held does not depend on how many there are in total.  Unbounded, every inner source
+ * is still created lazily, but all of them are subscribed at once.
+ */
+public class FanOut<T> {
+
+    private final Observable<? extends Observable<? extends T>> sources;
+    private int maxConcurrency = Integer.MAX_VALUE;
+    private boolean ordered;
+
+    private FanOut(Observable<? extends Observable<? extends T>> sources) {
+        this.sources = sources;
+    }
+
+    /**
+     * One inner source for each index from 0 to <code>count - 1</code>.
+     */
+    public static <T> FanOut<T> range(int count, Func1<Integer, ? extends Observable<? extends T>> source) {
+        return new FanOut<T>(Observable.range(0, count).map(source));
+    }
+
+    /**
+     * One inner source for each input, the iterable is read as the sources are needed.
+     */
+    public static <S, T> FanOut<T> from(Iterable<? extends S> inputs, Func1<? super S, ? extends Observable<? extends T>> source) {
+        return new FanOut<T>(Observable.<S>from(inputs).map(source));
+    }
+
+    /**
+     * Inner sources subscribed at once, the others are not created yet.
+     */
+    public FanOut<T> maxConcurrency(int maxConcurrency) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive");
+        }
+
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    /**
+     * Emits the items in the order of the inner sources, see {@link OrderedMerge}: the concurrency must be bounded, it is
+     * the size of the reorder buffer.
+     */
+    public FanOut<T> ordered() {
+        this.ordered = true;
+        return this;
+    }
+
+    public Observable<T> build() {
+        if (ordered) {
+            if (maxConcurrency == Integer.MAX_VALUE) {
+                throw new IllegalStateException("An ordered fan-out needs a maxConcurrency");
+            }
+            return OrderedMerge.merge(sources, maxConcurrency);
+        }
+        if (maxConcurrency == Integer.MAX_VALUE) {
+            return Observable.merge(sources);
+        }
+        return Observable.merge(sources, maxConcurrency);
+    }
+}
@@ -0,0 +1,93 @@
+package util;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.Single;
+import rx.Subscriber;
+import rx.observers.Subscribers;
+import rx.schedulers.Schedulers;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * Bridges {@link CompletableFuture} and RxJava without parking a thread.
+ *
+ * {@link #from(CompletableFuture)} replaces {@link Observable#from(java.util.concurrent.Future)}, which waits in
+ * {@link java.util.concurrent.Future#get()}: the value is delivered from the <code>whenComplete</code> callback, i.e. on
+ * the thread that completes the future, or on the subscribing thread when it is already done.  Unsubscribing cancels the future.
+ *
+ * {@link #toFuture(Observable)} replaces <code>toBlocking().single()</code>, which parks the caller on a latch.
+ */
+public final class FutureObservables {
+
+    private FutureObservables() {
+    }
+
+    public static <T> Single<T> toSingle(CompletableFuture<T> future) {
+        return Single.create(subscriber -> {
+            subscriber.add(Subscriptions.create(() -> future.cancel(true)));
+
+            future.whenComplete((value, throwable) -> {
+                if (subscriber.isUnsubscribed()) {
+                    return;
+                }
+                if (throwable != null) {
+                    subscriber.onError(unwrap(throwable));
+                } else {
+                    subscriber.onSuccess(value);
+                }
+            });
+        });
+    }
+
+    public static <T> Observable<T> from(CompletableFuture<T> future) {
+        return toSingle(future).toObservable();
+    }
+
+    /**
+     * Fails with a {@link java.util.concurrent.TimeoutException} and cancels the future when it is not done in time.
+     * The timeout is a timer on the computation scheduler, no thread waits for the future.
+     */
+    public static <T> Observable<T> from(CompletableFuture<T> future, long timeout, TimeUnit unit) {
+        return from(future, timeout, unit, Schedulers.computation());
+    }
+
+    public static <T> Observable<T> from(CompletableFuture<T> future, long timeout, TimeUnit unit, Scheduler scheduler) {
+        return from(future).timeout(timeout, unit, scheduler);
+    }
+
+    /**
+     * Subscribes and completes the future with the single item, with the semantics of <code>toBlocking().single()</code>:
+     * the future fails with an {@link IllegalArgumentException} for more than one item, a {@link java.util.NoSuchElementException}
+     * for none, and with the error of the Observable as is otherwise.  Cancelling the future unsubscribes.
+     */
+    public static <T> CompletableFuture<T> toFuture(Observable<T> observable) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+
+        Subscriber<T> subscriber = Subscribers.create(future::complete, future::completeExceptionally);
+        future.whenComplete((value, throwable) -> {
+            if (future.isCancelled()) {
+                subscriber.unsubscribe();
+            }
+        });
+
+        observable.single().subscribe(subscriber);
+
+        return future;
+    }
+
+    /**
+     * Completes with every item, like <code>toList().toBlocking().single()</code>.
+     */
+    public static <T> CompletableFuture<List<T>> toListFuture(Observable<T> observable) {
+        return toFuture(observable.toList());
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+    }
+}
@@ -0,0 +1,316 @@
+package util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import rx.Scheduler;
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * Scheduler for large numbers of timers that mostly get cancelled, such as a <code>timeout</code> per request.
+ *
+ * Delayed actions are hashed into a wheel of buckets by their deadline tick, so scheduling and cancelling are O(1)
+ * instead of the O(log n) of the computation scheduler's heap based executors.  The price is precision: an action
+ * runs on the first tick at or after its deadline.
+ *
+ * One thread turns the wheel and runs every action, delayed or not, which keeps the order guarantees of a
+ * {@link rx.Scheduler.Worker} for free.  Actions have to be short, move heavy work off with <code>observeOn</code>.
+ */
+public class HashedWheelScheduler extends Scheduler {
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Queue<Timer> added = new ConcurrentLinkedQueue<>();
+    private final Queue<Timer> cancelled = new ConcurrentLinkedQueue<>();
+    private final Queue<Runnable> immediate = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final long startNanos = System.nanoTime();
+    private final Thread thread;
+
+    private volatile boolean running = true;
+    private volatile boolean parked;
+    private long tick;
+
+    /**
+     * @param tickDuration resolution of the timers
+     * @param wheelSize buckets per turn of the wheel, rounded up to a power of two
+     */
+    public HashedWheelScheduler(long tickDuration, TimeUnit unit, int wheelSize) {
+        if (tickDuration <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("tickDuration and wheelSize must be positive");
+        }
+
+        tickNanos = unit.toNanos(tickDuration);
+        int buckets = Integer.highestOneBit(wheelSize - 1) << 1;
+        wheel = new Bucket[Math.max(buckets, 1)];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new Bucket();
+        }
+        mask = wheel.length - 1;
+
+        thread = new Thread(this::turn, "HashedWheelScheduler");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public Worker createWorker() {
+        return new WheelWorker();
+    }
+
+    /**
+     * Delayed actions not yet run or cancelled, including the ones of unsubscribed workers that have not expired yet.
+     */
+    public int pending() {
+        return pending.get();
+    }
+
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    private void execute(Runnable runnable) {
+        immediate.offer(runnable);
+        if (parked) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private Timer schedule(Action0 action, long delay, TimeUnit unit) {
+        Timer timer = new Timer(action, System.nanoTime() - startNanos + unit.toNanos(delay));
+        pending.incrementAndGet();
+        added.offer(timer);
+        return timer;
+    }
+
+    private void turn() {
+        while (running) {
+            waitForNextTick();
+
+            unlinkCancelled();
+            transferAdded();
+            wheel[(int) (tick & mask)].expire();
+            tick++;
+        }
+    }
+
+    private void waitForNextTick() {
+        long deadline = tickNanos * (tick + 1);
+        while (running) {
+            runImmediate();
+
+            long sleepNanos = deadline - (System.nanoTime() - startNanos);
+            if (sleepNanos <= 0) {
+                return;
+            }
+
+            parked = true;
+            if (immediate.isEmpty()) {
+                LockSupport.parkNanos(this, sleepNanos);
+            }
+            parked = false;
+        }
+    }
+
+    private void runImmediate() {
+        Runnable runnable;
+        while ((runnable = immediate.poll()) != null) {
+            runnable.run();
+        }
+    }
+
+    private void unlinkCancelled() {
+        Timer timer;
+        while ((timer = cancelled.poll()) != null) {
+            if (timer.bucket != null) {
+                timer.bucket.remove(timer);
+            }
+        }
+    }
+
+    private void transferAdded() {
+        Timer timer;
+        while ((timer = added.poll()) != null) {
+            if (timer.state.get() == Timer.CANCELLED) {
+                continue;
+            }
+            long deadlineTick = timer.deadlineNanos / tickNanos;
+            timer.remainingRounds = (deadlineTick - tick) / wheel.length;
+            // a deadline already passed goes into the current bucket
+            wheel[(int) (Math.max(deadlineTick, tick) & mask)].add(timer);
+        }
+    }
+
+    private static void runSafely(Action0 action) {
+        try {
+            action.call();
+        } catch (Throwable t) {
+            Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+        }
+    }
+
+    private final class Timer implements Subscription {
+        private static final int WAITING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final Action0 action;
+        private final long deadlineNanos;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        // owned by the wheel thread
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timer previous;
+        private Timer next;
+
+        private Timer(Action0 action, long deadlineNanos) {
+            this.action = action;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        @Override
+        public void unsubscribe() {
+            if (state.compareAndSet(WAITING, CANCELLED)) {
+                pending.decrementAndGet();
+                cancelled.offer(this);
+            }
+        }
+
+        @Override
+        public boolean isUnsubscribed() {
+            return state.get() != WAITING;
+        }
+    }
+
+    /**
+     * Doubly linked list of timers, only used by the wheel thread.
+     */
+    private final class Bucket {
+        private Timer head;
+        private Timer tail;
+
+        private void add(Timer timer) {
+            timer.bucket = this;
+            if (head == null) {
+                head = tail = timer;
+            } else {
+                tail.next = timer;
+                timer.previous = tail;
+                tail = timer;
+            }
+        }
+
+        private void remove(Timer timer) {
+            if (timer.previous != null) {
+                timer.previous.next = timer.next;
+            } else {
+                head = timer.next;
+            }
+            if (timer.next != null) {
+                timer.next.previous = timer.previous;
+            } else {
+                tail = timer.previous;
+            }
+            timer.bucket = null;
+            timer.previous = null;
+            timer.next = null;
+        }
+
+        private void expire() {
+            Timer timer = head;
+            while (timer != null) {
+                Timer next = timer.next;
+                if (timer.remainingRounds <= 0) {
+                    remove(timer);
+                    if (timer.state.compareAndSet(Timer.WAITING, Timer.EXPIRED)) {
+                        pending.decrementAndGet();
+                        runSafely(timer.action);
+                    }
+                } else {
+                    timer.remainingRounds--;
+                }
+                timer = next;
+            }
+        }
+    }
+
+    /**
+     * Timers are not tracked per worker, a set of them costs more than the rest of a schedule and cancel together.
+     * Unsubscribing the worker leaves its timers on the wheel until they expire and are skipped.
+     */
+    private final class WheelWorker extends Worker {
+        private volatile boolean unsubscribed;
+
+        @Override
+        public Subscription schedule(Action0 action) {
+            if (isUnsubscribed()) {
+                return Subscriptions.unsubscribed();
+            }
+
+            ImmediateAction task = new ImmediateAction(action);
+            execute(task);
+            return task;
+        }
+
+        @Override
+        public Subscription schedule(Action0 action, long delayTime, TimeUnit unit) {
+            if (delayTime <= 0) {
+                return schedule(action);
+            }
+            if (isUnsubscribed()) {
+                return Subscriptions.unsubscribed();
+            }
+
+            return HashedWheelScheduler.this.schedule(() -> {
+                if (!unsubscribed) {
+                    action.call();
+                }
+            }, delayTime, unit);
+        }
+
+        @Override
+        public void unsubscribe() {
+            unsubscribed = true;
+        }
+
+        @Override
+        public boolean isUnsubscribed() {
+            return unsubscribed;
+        }
+
+        private final class ImmediateAction implements Runnable, Subscription {
+            private final Action0 action;
+            private volatile boolean cancelled;
+
+            private ImmediateAction(Action0 action) {
+                this.action = action;
+            }
+
+            @Override
+            public void run() {
+                if (!cancelled && !WheelWorker.this.unsubscribed) {
+                    runSafely(action);
+                }
+            }
+
+            @Override
+            public void unsubscribe() {
+                cancelled = true;
+            }
+
+            @Override
+            public boolean isUnsubscribed() {
+                return cancelled;
+            }
+        }
+    }
+}
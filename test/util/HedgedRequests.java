@@ -0,0 +1,109 @@
+package util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.functions.Func0;
+import rx.schedulers.Schedulers;
+
+/**
+ * Hedged requests against the tail latency of a service.
+ *
+ * <pre>
+ * call.compose(hedging.hedged())
+ * </pre>
+ * subscribes to the call, and when it has not answered within the hedge delay subscribes to it a second time.  The
+ * first of the two to emit wins, the other one is unsubscribed.  An error of the primary call before the delay is
+ * not hedged, that is the job of a retry.
+ *
+ * The delay is either fixed or an observed percentile of the latency of the service, the p90 or p95 typically, which
+ * hedges that share of the calls at most.  The budget caps the backup calls to a fraction of all the requests made
+ * so far, so a slow service does not get twice the load.
+ */
+public class HedgedRequests {
+
+    /**
+     * Samples an observed latency histogram needs before its percentile is trusted.
+     */
+    private static final long MIN_SAMPLES = 100;
+
+    private final Func0<Long> delayNanos;
+    private final double budget;
+    private final Scheduler scheduler;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+
+    /**
+     * @param budget backup calls allowed, as a fraction of the requests
+     */
+    public HedgedRequests(long delay, TimeUnit unit, double budget) {
+        this(() -> unit.toNanos(delay), budget, Schedulers.computation());
+    }
+
+    /**
+     * @param observed latencies of the service, in nanoseconds, from {@link StageLatencies} for instance
+     * @param percentile of the observed latencies to wait before hedging
+     * @param fallbackDelay used until <code>observed</code> has enough samples
+     * @param budget backup calls allowed, as a fraction of the requests
+     */
+    public HedgedRequests(LatencyHistogram observed, double percentile, long fallbackDelay, TimeUnit unit, double budget) {
+        this(() -> observed.count() >= MIN_SAMPLES ? observed.percentile(percentile) : unit.toNanos(fallbackDelay), budget, Schedulers.computation());
+    }
+
+    /**
+     * @param scheduler runs the hedge delay timers
+     */
+    public HedgedRequests(Func0<Long> delayNanos, double budget, Scheduler scheduler) {
+        if (budget < 0) {
+            throw new IllegalArgumentException("budget must not be negative");
+        }
+
+        this.delayNanos = delayNanos;
+        this.budget = budget;
+        this.scheduler = scheduler;
+    }
+
+    public <T> Observable.Transformer<T, T> hedged() {
+        return call -> Observable.defer(() -> {
+            requests.incrementAndGet();
+
+            Observable<T> backup = Observable.timer(delayNanos.call(), TimeUnit.NANOSECONDS, scheduler)
+                    .flatMap(tick -> tryHedge() ? call.doOnNext(first -> hedgeWins.incrementAndGet()) : Observable.<T>never());
+
+            return Observable.amb(call, backup);
+        });
+    }
+
+    private boolean tryHedge() {
+        long current;
+        do {
+            current = hedges.get();
+            if (current + 1 > budget * requests.get()) {
+                return false;
+            }
+        } while (!hedges.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    public long requests() {
+        return requests.get();
+    }
+
+    /**
+     * Backup calls made.
+     */
+    public long hedges() {
+        return hedges.get();
+    }
+
+    /**
+     * Backup calls that answered before their primary.
+     */
+    public long hedgeWins() {
+        return hedgeWins.get();
+    }
+}
@@ -0,0 +1,105 @@
+package util;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Source of the ids returned by a simulated service.
+ *
+ * {@link UUID#randomUUID()} draws from one shared <code>SecureRandom</code>: with short or no service latency, the
+ * threads of a scenario queue on it and a benchmark measures that lock instead of the pipeline.  The other generators
+ * share nothing, or a single counter.
+ */
+@FunctionalInterface
+public interface IdGenerator {
+
+    UUID next();
+
+    /**
+     * {@link UUID#randomUUID()}, cryptographically strong and contended.
+     */
+    static IdGenerator secureRandom() {
+        return UUID::randomUUID;
+    }
+
+    /**
+     * Random (version 4) UUIDs drawn from {@link ThreadLocalRandom}, nothing shared between threads.
+     */
+    static IdGenerator threadLocalRandom() {
+        return () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            return new UUID(version(random.nextLong(), 4), variant(random.nextLong()));
+        };
+    }
+
+    /**
+     * Time-ordered (version 7 layout) UUIDs: the milliseconds since the epoch, then a sequence within the millisecond,
+     * then random bits.  Every UUID is greater than the previous one from the same generator, across threads: the time
+     * and sequence are one shared counter, which never goes back with the clock and borrows the next millisecond when
+     * the sequence is exhausted.
+     */
+    static IdGenerator timeOrdered() {
+        AtomicLong lastStamp = new AtomicLong();
+        return () -> {
+            long now = System.currentTimeMillis() << 12;
+            long stamp = lastStamp.updateAndGet(last -> Math.max(last + 1, now));
+            long msb = ((stamp >>> 12) << 16) | 0x7000L | (stamp & 0xFFFL);
+            return new UUID(msb, variant(ThreadLocalRandom.current().nextLong()));
+        };
+    }
+
+    /**
+     * Sequential UUIDs behind a random prefix drawn once: every thread takes a block of <code>blockSize</code> numbers
+     * from a shared counter and counts through it on its own, one atomic operation per block.  Unique for the
+     * generator, neither ordered across threads nor unpredictable.
+     */
+    static IdGenerator counterBlocks(int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize must be positive");
+        }
+
+        long prefix = version(ThreadLocalRandom.current().nextLong(), 4);
+        AtomicLong nextBlock = new AtomicLong();
+        // next number and end of the block of the thread
+        ThreadLocal<long[]> blocks = ThreadLocal.withInitial(() -> new long[2]);
+        return () -> {
+            long[] block = blocks.get();
+            if (block[0] == block[1]) {
+                block[0] = nextBlock.getAndAdd(blockSize);
+                block[1] = block[0] + blockSize;
+            }
+            return new UUID(prefix, variant(block[0]++));
+        };
+    }
+
+    /**
+     * <code>secureRandom</code>, <code>threadLocalRandom</code>, <code>timeOrdered</code> or <code>counterBlocks</code>
+     * (blocks of 1024), for <code>-Dtest.ids</code> and the benchmark parameter.
+     */
+    static IdGenerator of(String name) {
+        switch (name) {
+            case "secureRandom":
+                return secureRandom();
+            case "threadLocalRandom":
+                return threadLocalRandom();
+            case "timeOrdered":
+                return timeOrdered();
+            case "counterBlocks":
+                return counterBlocks(1024);
+            default:
+                throw new IllegalArgumentException("Unknown id generator " + name);
+        }
+    }
+
+    static long version(long msb, int version) {
+        return (msb & ~0xF000L) | ((long) version << 12);
+    }
+
+    /**
+     * Sets the IETF variant bits of the least significant half.
+     */
+    static long variant(long lsb) {
+        return (lsb & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+    }
+}
@@ -0,0 +1,167 @@
+package util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency of the calls to a simulated service, drawn call by call.
+ *
+ * The random models take the {@link Random} they draw from, so a fixed seed replays the same latencies as long as
+ * the draws come from one thread.  Models sampled from many threads at once draw from {@link #perThreadRandom(long)}.
+ */
+@FunctionalInterface
+public interface LatencyModel {
+
+    /**
+     * Latency of the next call, in microseconds.
+     */
+    long nextMicros();
+
+    /**
+     * A {@link Random} per calling thread, each seeded from <code>seed</code> and the order in which the threads first
+     * draw: no seed shared, and fought over, between threads.  The draws of a scenario calling from one thread, or from
+     * threads taking their turns in a fixed order, replay with the seed; threads interleaving differently from run to
+     * run get their draws in a different order, as they would from one shared {@link Random}.
+     */
+    static Random perThreadRandom(long seed) {
+        AtomicLong threads = new AtomicLong();
+        // spreads the seeds of the successive threads, Random only scrambles its seed with an xor
+        ThreadLocal<Random> perThread = ThreadLocal.withInitial(() -> new Random(seed + threads.getAndIncrement() * 0x9E3779B97F4A7C15L));
+
+        return new Random() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected int next(int bits) {
+                return perThread.get().nextInt() >>> (32 - bits);
+            }
+
+            @Override
+            public long nextLong() {
+                return perThread.get().nextLong();
+            }
+
+            @Override
+            public double nextDouble() {
+                return perThread.get().nextDouble();
+            }
+
+            @Override
+            public double nextGaussian() {
+                return perThread.get().nextGaussian();
+            }
+        };
+    }
+
+    static LatencyModel constant(long millis) {
+        long micros = TimeUnit.MILLISECONDS.toMicros(millis);
+        return () -> micros;
+    }
+
+    /**
+     * Evenly spread between <code>minMillis</code> and <code>maxMillis</code>.
+     */
+    static LatencyModel uniform(long minMillis, long maxMillis, Random random) {
+        long min = TimeUnit.MILLISECONDS.toMicros(minMillis);
+        long range = TimeUnit.MILLISECONDS.toMicros(maxMillis) - min;
+        return () -> min + (long) (random.nextDouble() * range);
+    }
+
+    /**
+     * The usual shape of a service latency: a median, and a right skew that grows with <code>sigma</code>.
+     * With a sigma of 0.5, p99 is 3.2 times the median.
+     */
+    static LatencyModel logNormal(long medianMillis, double sigma, Random random) {
+        double mu = Math.log(TimeUnit.MILLISECONDS.toMicros(medianMillis));
+        return () -> (long) Math.exp(mu + sigma * random.nextGaussian());
+    }
+
+    /**
+     * <code>baseMillis</code>, except for rare spikes of <code>spikeMillis</code>: a garbage collection, a cold cache,
+     * a retransmission.
+     */
+    static LatencyModel bimodal(long baseMillis, long spikeMillis, double spikeProbability, Random random) {
+        long base = TimeUnit.MILLISECONDS.toMicros(baseMillis);
+        long spike = TimeUnit.MILLISECONDS.toMicros(spikeMillis);
+        return () -> random.nextDouble() < spikeProbability ? spike : base;
+    }
+
+    /**
+     * Heavy-tailed latency: most calls take about <code>scaleInMillis</code>, a few take many times longer.
+     *
+     * Pareto distributed, the probability of a call taking more than <code>x</code> times the scale is
+     * <code>x^-shape</code>: with a shape of 1.5, p90 is 4.6 times the scale and p99 is 21.5 times.
+     *
+     * @param maxInMillis cap of the tail
+     */
+    static LatencyModel pareto(long scaleInMillis, double shape, long maxInMillis, Random random) {
+        long scale = TimeUnit.MILLISECONDS.toMicros(scaleInMillis);
+        long max = TimeUnit.MILLISECONDS.toMicros(maxInMillis);
+        return () -> {
+            double uniform = 1 - random.nextDouble();
+            return Math.min((long) (scale / Math.pow(uniform, 1 / shape)), max);
+        };
+    }
+
+    /**
+     * Replays the latencies recorded in <code>file</code>, in order and over again.
+     *
+     * One latency in milliseconds per line, fractions allowed; blank lines and lines starting with <code>#</code>
+     * are skipped.
+     */
+    static LatencyModel replay(Path file) {
+        long[] recorded;
+        try {
+            recorded = Files.readAllLines(file).stream()
+                    .map(String::trim)
+                    .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                    .mapToLong(line -> (long) (Double.parseDouble(line) * TimeUnit.MILLISECONDS.toMicros(1)))
+                    .toArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        if (recorded.length == 0) {
+            throw new IllegalArgumentException("No latency recorded in " + file);
+        }
+
+        AtomicLong next = new AtomicLong();
+        return () -> recorded[(int) (next.getAndIncrement() % recorded.length)];
+    }
+
+    /**
+     * A model of the given shape around <code>medianMillis</code>, for <code>-Dtest.latency</code>:
+     * <ul>
+     * <li><code>constant</code></li>
+     * <li><code>uniform</code>: from half to one and a half times the median</li>
+     * <li><code>lognormal</code>: a sigma of 0.5</li>
+     * <li><code>bimodal</code>: 1% of spikes at 10 times the median</li>
+     * <li><code>pareto</code>: from the median up, a shape of 1.5 capped at 50 times the median</li>
+     * <li><code>replay:&lt;file&gt;</code>: see {@link #replay(Path)}, the median is ignored</li>
+     * </ul>
+     */
+    static LatencyModel of(String shape, long medianMillis, Random random) {
+        if (shape.startsWith("replay:")) {
+            return replay(Paths.get(shape.substring("replay:".length())));
+        }
+
+        switch (shape) {
+            case "constant":
+                return constant(medianMillis);
+            case "uniform":
+                return uniform(medianMillis / 2, medianMillis + medianMillis / 2, random);
+            case "lognormal":
+                return logNormal(medianMillis, 0.5, random);
+            case "bimodal":
+                return bimodal(medianMillis, medianMillis * 10, 0.01, random);
+            case "pareto":
+                return pareto(medianMillis, 1.5, medianMillis * 50, random);
+            default:
+                throw new IllegalArgumentException("Unknown latency model " + shape);
+        }
+    }
+}
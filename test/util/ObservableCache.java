@@ -0,0 +1,66 @@
+package util;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import rx.Observable;
+
+/**
+ * Results of single item Observables, such as service calls, kept in memory by request key.
+ *
+ * Built on a Guava {@link Cache}: entries expire a fixed time after they were written and, past the maximum size, the
+ * least recently used ones are evicted (per segment of the cache, as Guava does).  Hits, misses and evictions are
+ * counted in {@link #stats()}.
+ *
+ * <pre>
+ * observable.compose(cache.cached(key))
+ * </pre>
+ * serves every subscription within the time to live from memory; the first one, or the first after the entry
+ * expired, subscribes to the source.  Concurrent misses all subscribe to the source, and errors are not cached.
+ */
+public class ObservableCache<K, V> {
+
+    private final Cache<K, V> cache;
+
+    public ObservableCache(long maximumSize, long timeToLive, TimeUnit unit) {
+        this(maximumSize, timeToLive, unit, Ticker.systemTicker());
+    }
+
+    /**
+     * @param ticker ages the entries against the time to live
+     */
+    public ObservableCache(long maximumSize, long timeToLive, TimeUnit unit, Ticker ticker) {
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive, unit)
+                .ticker(ticker)
+                .recordStats()
+                .build();
+    }
+
+    public Observable.Transformer<V, V> cached(K key) {
+        return source -> Observable.defer(() -> {
+            V value = cache.getIfPresent(key);
+            if (value != null) {
+                return Observable.just(value);
+            }
+            return source.doOnNext(result -> cache.put(key, result));
+        });
+    }
+
+    public void invalidate(K key) {
+        cache.invalidate(key);
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
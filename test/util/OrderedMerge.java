@@ -0,0 +1,312 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import rx.Observable;
+import rx.Subscriber;
+import rx.exceptions.MissingBackpressureException;
+import rx.functions.Func1;
+import rx.subscriptions.CompositeSubscription;
+
+/**
+ * A <code>flatMap</code> that runs up to <code>maxConcurrency</code> inner sources at once, like <code>merge</code>, but
+ * emits their items in the order of the sources, like <code>concat</code>.
+ *
+ * <pre>
+ * requests.compose(OrderedMerge.flatMap(request -&gt; callService(request), 64))
+ * </pre>
+ * The sources behind the one being emitted buffer their items in rings of <code>bufferPerSource</code> slots, and only
+ * request more as the ring is drained: once they are full the sources are held back rather than the buffers grown.  A
+ * new source is only subscribed when the oldest completes, so a slow source holds up the emission of the faster ones
+ * after it, but never more than <code>maxConcurrency</code> of them.
+ *
+ * The first error, of the upstream or of any source, is emitted at once and cancels everything else.
+ */
+public final class OrderedMerge {
+
+    private static final int DEFAULT_BUFFER_PER_SOURCE = 16;
+
+    private OrderedMerge() {
+    }
+
+    public static <T, R> Observable.Transformer<T, R> flatMap(Func1<? super T, ? extends Observable<? extends R>> mapper,
+            int maxConcurrency) {
+        return flatMap(mapper, maxConcurrency, DEFAULT_BUFFER_PER_SOURCE);
+    }
+
+    public static <T, R> Observable.Transformer<T, R> flatMap(Func1<? super T, ? extends Observable<? extends R>> mapper,
+            int maxConcurrency, int bufferPerSource) {
+        if (maxConcurrency <= 0 || bufferPerSource <= 0) {
+            throw new IllegalArgumentException("maxConcurrency and bufferPerSource must be positive");
+        }
+
+        return source -> Observable.create(child -> {
+            Coordinator<T, R> coordinator = new Coordinator<>(child, mapper, maxConcurrency, bufferPerSource);
+            child.add(coordinator);
+            child.setProducer(coordinator::requestFromChild);
+            source.unsafeSubscribe(coordinator);
+        });
+    }
+
+    public static <T> Observable<T> merge(Observable<? extends Observable<? extends T>> sources, int maxConcurrency) {
+        return sources.compose(flatMap(observable -> observable, maxConcurrency));
+    }
+
+    private static final class Coordinator<T, R> extends Subscriber<T> {
+        private final Subscriber<? super R> child;
+        private final Func1<? super T, ? extends Observable<? extends R>> mapper;
+        private final int maxConcurrency;
+        private final int bufferPerSource;
+
+        // the running sources in subscription order, added by onNext and removed by drain
+        private final Ring<Inner<R>> sources;
+        private final CompositeSubscription running = new CompositeSubscription();
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
+        private volatile boolean done;
+
+        private Coordinator(Subscriber<? super R> child, Func1<? super T, ? extends Observable<? extends R>> mapper,
+                int maxConcurrency, int bufferPerSource) {
+            this.child = child;
+            this.mapper = mapper;
+            this.maxConcurrency = maxConcurrency;
+            this.bufferPerSource = bufferPerSource;
+            this.sources = new Ring<>(maxConcurrency);
+            add(running);
+        }
+
+        @Override
+        public void onStart() {
+            request(maxConcurrency);
+        }
+
+        @Override
+        public void onNext(T t) {
+            Observable<? extends R> observable;
+            try {
+                observable = mapper.call(t);
+            } catch (Throwable e) {
+                onError(e);
+                return;
+            }
+
+            Inner<R> inner = new Inner<>(this, bufferPerSource);
+            running.add(inner);
+            if (!sources.offer(inner)) {
+                onError(new MissingBackpressureException("More sources than the " + maxConcurrency + " requested"));
+                return;
+            }
+            observable.unsafeSubscribe(inner);
+            drain();
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            error.compareAndSet(null, e);
+            done = true;
+            drain();
+        }
+
+        @Override
+        public void onCompleted() {
+            done = true;
+            drain();
+        }
+
+        private void requestFromChild(long n) {
+            if (n > 0) {
+                while (true) {
+                    long current = requested.get();
+                    long next = current + n < 0 ? Long.MAX_VALUE : current + n;
+                    if (requested.compareAndSet(current, next)) {
+                        break;
+                    }
+                }
+                drain();
+            }
+        }
+
+        /**
+         * Emits what the oldest source has buffered, one thread at a time; the others leave their work to it.
+         */
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+
+            int missed = 1;
+            do {
+                long wanted = requested.get();
+                long emitted = 0;
+
+                while (true) {
+                    if (child.isUnsubscribed()) {
+                        return;
+                    }
+                    Throwable e = error.get();
+                    if (e != null) {
+                        unsubscribe();
+                        child.onError(e);
+                        return;
+                    }
+
+                    // read before peeking, the last source is offered before done is set
+                    boolean d = done;
+                    Inner<R> head = sources.peek();
+                    if (head == null) {
+                        if (d) {
+                            child.onCompleted();
+                            return;
+                        }
+                        break;
+                    }
+
+                    // read before polling, the last item is offered before done is set
+                    boolean headDone = head.done;
+                    if (emitted == wanted) {
+                        if (headDone && head.buffer.isEmpty()) {
+                            nextSource(head);
+                            continue;
+                        }
+                        break;
+                    }
+
+                    Object item = head.buffer.poll();
+                    if (item == null) {
+                        if (headDone) {
+                            nextSource(head);
+                            continue;
+                        }
+                        break;
+                    }
+
+                    child.onNext(Inner.<R>unwrap(item));
+                    emitted++;
+                    head.consumed();
+                }
+
+                if (emitted != 0 && wanted != Long.MAX_VALUE) {
+                    requested.addAndGet(-emitted);
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void nextSource(Inner<R> head) {
+            sources.poll();
+            running.remove(head);
+            request(1);
+        }
+    }
+
+    private static final class Inner<R> extends Subscriber<R> {
+        // stands for null items in the ring, where null is an empty slot
+        private static final Object NULL = new Object();
+
+        private final Coordinator<?, R> coordinator;
+        private final Ring<Object> buffer;
+        private final int replenish;
+        private int consumed;
+        private volatile boolean done;
+
+        private Inner(Coordinator<?, R> coordinator, int bufferPerSource) {
+            this.coordinator = coordinator;
+            this.buffer = new Ring<>(bufferPerSource);
+            this.replenish = Math.max(1, bufferPerSource / 2);
+        }
+
+        @Override
+        public void onStart() {
+            request(buffer.capacity());
+        }
+
+        @Override
+        public void onNext(R r) {
+            if (!buffer.offer(r == null ? NULL : r)) {
+                onError(new MissingBackpressureException("Source emitted more than the " + buffer.capacity() + " requested"));
+                return;
+            }
+            coordinator.drain();
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            coordinator.onError(e);
+        }
+
+        @Override
+        public void onCompleted() {
+            done = true;
+            coordinator.drain();
+        }
+
+        /**
+         * Called by the drain for every item taken, requests again half the ring at a time.
+         */
+        private void consumed() {
+            if (++consumed == replenish) {
+                consumed = 0;
+                request(replenish);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <R> R unwrap(Object item) {
+            return item == NULL ? null : (R) item;
+        }
+    }
+
+    /**
+     * Bounded single producer, single consumer ring.
+     */
+    private static final class Ring<E> {
+        private final AtomicReferenceArray<E> slots;
+        private final int capacity;
+        private final AtomicLong producerIndex = new AtomicLong();
+        private final AtomicLong consumerIndex = new AtomicLong();
+
+        private Ring(int capacity) {
+            this.capacity = capacity;
+            this.slots = new AtomicReferenceArray<>(capacity);
+        }
+
+        int capacity() {
+            return capacity;
+        }
+
+        boolean offer(E element) {
+            long producer = producerIndex.get();
+            if (producer - consumerIndex.get() == capacity) {
+                return false;
+            }
+            slots.lazySet((int) (producer % capacity), element);
+            producerIndex.lazySet(producer + 1);
+            return true;
+        }
+
+        E peek() {
+            long consumer = consumerIndex.get();
+            return consumer == producerIndex.get() ? null : slots.get((int) (consumer % capacity));
+        }
+
+        E poll() {
+            long consumer = consumerIndex.get();
+            if (consumer == producerIndex.get()) {
+                return null;
+            }
+            int slot = (int) (consumer % capacity);
+            E element = slots.get(slot);
+            slots.lazySet(slot, null);
+            consumerIndex.lazySet(consumer + 1);
+            return element;
+        }
+
+        boolean isEmpty() {
+            return consumerIndex.get() == producerIndex.get();
+        }
+    }
+}
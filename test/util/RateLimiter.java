@@ -0,0 +1,121 @@
+package util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Ticker;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.schedulers.Schedulers;
+
+/**
+ * Token bucket holding up to <code>burst</code> permits, refilled at <code>permits</code> per <code>period</code>, to keep
+ * the calls to a dependency within its quota.
+ *
+ * <pre>
+ * requests.compose(limiter.limit()).flatMap(request -&gt; callService(request))
+ * call.compose(limiter.protect())
+ * call.compose(limiter.protectOrReject())
+ * </pre>
+ * <code>limit()</code> paces the items of a stream, <code>protect()</code> delays the subscription of a call until a
+ * permit is available, <code>protectOrReject()</code> fails the call with an {@link ExceededException} instead.  Waiting
+ * is a timer on the scheduler, no thread is blocked.  <code>limit()</code> takes the permits one item at a time, as each
+ * item is emitted; being a <code>concatMap</code> it requests 2 items from upstream first, then one more per item.
+ *
+ * The bucket is one <code>long</code>, the time at which it will be full again (GCRA), updated with compare and set: a
+ * permit taken moves it one interval forward, so concurrent callers do not lock each other.
+ */
+public class RateLimiter {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final Scheduler scheduler;
+    private final Ticker ticker;
+
+    private final AtomicLong fullNanos;
+
+    public RateLimiter(long permits, long period, TimeUnit unit, int burst) {
+        this(permits, period, unit, burst, Schedulers.computation(), Ticker.systemTicker());
+    }
+
+    /**
+     * @param scheduler runs the timers of the delayed permits
+     * @param ticker paces the refill of the bucket
+     */
+    public RateLimiter(long permits, long period, TimeUnit unit, int burst, Scheduler scheduler, Ticker ticker) {
+        if (permits <= 0 || period <= 0) {
+            throw new IllegalArgumentException("permits and period must be positive");
+        }
+        if (burst <= 0) {
+            throw new IllegalArgumentException("burst must be positive");
+        }
+
+        this.intervalNanos = Math.max(1, unit.toNanos(period) / permits);
+        this.burstNanos = intervalNanos * burst;
+        this.scheduler = scheduler;
+        this.ticker = ticker;
+        // starts full
+        this.fullNanos = new AtomicLong(ticker.read());
+    }
+
+    /**
+     * Takes a permit, in advance when the bucket is empty.
+     *
+     * @return nanoseconds to wait before the permit can be used, 0 when it can be used now
+     */
+    public long reserve() {
+        while (true) {
+            long now = ticker.read();
+            long full = fullNanos.get();
+            long next = Math.max(full, now) + intervalNanos;
+            if (fullNanos.compareAndSet(full, next)) {
+                return Math.max(0, next - burstNanos - now);
+            }
+        }
+    }
+
+    /**
+     * Takes a permit if one is available now.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            long now = ticker.read();
+            long full = fullNanos.get();
+            long next = Math.max(full, now) + intervalNanos;
+            if (next - burstNanos > now) {
+                return false;
+            }
+            if (fullNanos.compareAndSet(full, next)) {
+                return true;
+            }
+        }
+    }
+
+    public <T> Observable.Transformer<T, T> limit() {
+        return source -> source.concatMap(item -> Observable.just(item).compose(protect()));
+    }
+
+    public <T> Observable.Transformer<T, T> protect() {
+        return call -> Observable.defer(() -> {
+            long waitNanos = reserve();
+            return waitNanos == 0 ? call : call.delaySubscription(waitNanos, TimeUnit.NANOSECONDS, scheduler);
+        });
+    }
+
+    public <T> Observable.Transformer<T, T> protectOrReject() {
+        return call -> Observable.defer(() -> tryAcquire() ? call : Observable.<T>error(new ExceededException()));
+    }
+
+    /**
+     * The call was not made, no permit was left.
+     */
+    public static class ExceededException extends RuntimeException {
+
+        private static final long serialVersionUID = 4470862195537926207L;
+
+        public ExceededException() {
+            super("Rate limit exceeded, call not made");
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.exceptions.Exceptions;
+import rx.exceptions.OnErrorFailedException;
+import rx.exceptions.OnErrorNotImplementedException;
+import rx.functions.Func1;
+import rx.plugins.RxJavaPlugins;
+import rx.schedulers.Schedulers;
+
+/**
+ * Collapses individual requests into bulk calls.
+ *
+ * Requests made through {@link #get(Object)} are gathered into a batch, which is sent as one bulk call when it holds
+ * <code>maxBatchSize</code> requests or when its window, started by the first request, expires.  Every result of the
+ * bulk call is routed back to the requests for its key.
+ *
+ * Errors are isolated per request: a key missing from the bulk result fails its own requests with a
+ * {@link NoSuchElementException} only, and a subscriber throwing from its callbacks is reported to the
+ * {@link RxJavaPlugins} error handler without keeping the others of its batch from their results.  A failed bulk call
+ * fails the requests of its batch, not the later batches.
+ *
+ * A request unsubscribed before its batch is sent is still sent, its result is dropped.
+ */
+public class RequestCollapser<K, V> {
+
+    private final Func1<List<K>, Observable<Map<K, V>>> bulkCall;
+    private final int maxBatchSize;
+    private final long window;
+    private final TimeUnit unit;
+    private final Scheduler scheduler;
+
+    private Batch batch;
+
+    public RequestCollapser(Func1<List<K>, Observable<Map<K, V>>> bulkCall, int maxBatchSize, long window, TimeUnit unit) {
+        this(bulkCall, maxBatchSize, window, unit, Schedulers.computation());
+    }
+
+    /**
+     * @param scheduler runs the window timers, and the bulk calls sent when a window expires
+     */
+    public RequestCollapser(Func1<List<K>, Observable<Map<K, V>>> bulkCall, int maxBatchSize, long window, TimeUnit unit, Scheduler scheduler) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be positive");
+        }
+
+        this.bulkCall = bulkCall;
+        this.maxBatchSize = maxBatchSize;
+        this.window = window;
+        this.unit = unit;
+        this.scheduler = scheduler;
+    }
+
+    public Observable<V> get(K key) {
+        return Observable.create(subscriber -> {
+            Batch full = null;
+            synchronized (this) {
+                if (batch == null) {
+                    batch = new Batch();
+                }
+                batch.requests.add(new Request(key, subscriber));
+                if (batch.requests.size() >= maxBatchSize) {
+                    full = batch;
+                    batch = null;
+                } else if (batch.requests.size() == 1) {
+                    batch.startWindow();
+                }
+            }
+
+            if (full != null) {
+                full.send();
+            }
+        });
+    }
+
+    private synchronized boolean close(Batch expired) {
+        if (batch != expired) {
+            // already sent because it was full
+            return false;
+        }
+        batch = null;
+        return true;
+    }
+
+    private final class Request {
+        private final K key;
+        private final Subscriber<? super V> subscriber;
+        // set by the thread delivering the outcome of the batch, before delivering it
+        private boolean settled;
+
+        private Request(K key, Subscriber<? super V> subscriber) {
+            this.key = key;
+            this.subscriber = subscriber;
+        }
+
+        private void complete(Map<K, V> results) {
+            if (settled || subscriber.isUnsubscribed()) {
+                return;
+            }
+            settled = true;
+
+            V value = results.get(key);
+            if (value == null) {
+                subscriber.onError(new NoSuchElementException("No result for " + key));
+            } else {
+                subscriber.onNext(value);
+                subscriber.onCompleted();
+            }
+        }
+
+        private void fail(Throwable e) {
+            if (settled || subscriber.isUnsubscribed()) {
+                return;
+            }
+            settled = true;
+            subscriber.onError(e);
+        }
+    }
+
+    private final class Batch {
+        private final List<Request> requests = new ArrayList<>();
+        private Scheduler.Worker timer;
+
+        private void startWindow() {
+            timer = scheduler.createWorker();
+            timer.schedule(() -> {
+                if (close(this)) {
+                    send();
+                }
+            }, window, unit);
+        }
+
+        private void send() {
+            if (timer != null) {
+                timer.unsubscribe();
+            }
+
+            Set<K> keys = new LinkedHashSet<>();
+            for (Request request : requests) {
+                keys.add(request.key);
+            }
+
+            Observable<Map<K, V>> call;
+            try {
+                call = bulkCall.call(new ArrayList<>(keys));
+            } catch (Throwable e) {
+                call = Observable.error(e);
+            }
+
+            call.single().subscribe(results -> {
+                for (Request request : requests) {
+                    try {
+                        request.complete(results);
+                    } catch (Throwable e) {
+                        report(e);
+                    }
+                }
+            }, e -> {
+                for (Request request : requests) {
+                    try {
+                        request.fail(e);
+                    } catch (Throwable t) {
+                        report(t);
+                    }
+                }
+            });
+        }
+
+        /**
+         * A subscriber throwing from its callbacks is its own problem, the other requests of the batch still get theirs.
+         */
+        private void report(Throwable e) {
+            // throwIfFatal rethrows these two, but they are the failure of one subscriber's handlers, not of the batch
+            if (!(e instanceof OnErrorNotImplementedException) && !(e instanceof OnErrorFailedException)) {
+                Exceptions.throwIfFatal(e);
+            }
+            RxJavaPlugins.getInstance().getErrorHandler().handleError(e);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package util;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Memory, GC and threads used by the whole JVM between {@link #start()} and {@link #stop()}.
+ *
+ * The allocated bytes are the sum over all the threads alive at the end, not only those the test handed work to, of
+ * what each allocated since the start, or since it was created.  A thread that ended in between is not counted; the
+ * io() and computation() threads are long-lived.  They need the HotSpot extension of {@link ThreadMXBean}: on other
+ * JVMs {@link #allocatedBytes()} is -1 and printed as n/a.  GC counts and times cover the whole JVM too, and the peak
+ * thread count is reset at the start.
+ */
+public class ResourceUsage {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final com.sun.management.ThreadMXBean ALLOCATIONS = THREADS instanceof com.sun.management.ThreadMXBean
+            ? (com.sun.management.ThreadMXBean) THREADS : null;
+
+    private final Map<Long, Long> startAllocatedBytes;
+    private final long startGcCount;
+    private final long startGcMillis;
+    private final int startThreads;
+
+    private long allocatedBytes = -1;
+    private long gcCount;
+    private long gcMillis;
+    private int endThreads;
+    private int peakThreads;
+
+    private ResourceUsage() {
+        startAllocatedBytes = threadAllocatedBytes();
+        startGcCount = totalGcCount();
+        startGcMillis = totalGcMillis();
+        THREADS.resetPeakThreadCount();
+        startThreads = THREADS.getThreadCount();
+    }
+
+    public static ResourceUsage start() {
+        return new ResourceUsage();
+    }
+
+    public static boolean isAllocationSupported() {
+        return ALLOCATIONS != null && ALLOCATIONS.isThreadAllocatedMemorySupported()
+                && ALLOCATIONS.isThreadAllocatedMemoryEnabled();
+    }
+
+    public ResourceUsage stop() {
+        if (isAllocationSupported()) {
+            long allocated = 0;
+            for (Map.Entry<Long, Long> thread : threadAllocatedBytes().entrySet()) {
+                allocated += thread.getValue() - startAllocatedBytes.getOrDefault(thread.getKey(), 0L);
+            }
+            allocatedBytes = allocated;
+        }
+
+        gcCount = totalGcCount() - startGcCount;
+        gcMillis = totalGcMillis() - startGcMillis;
+        endThreads = THREADS.getThreadCount();
+        peakThreads = THREADS.getPeakThreadCount();
+        return this;
+    }
+
+    private static Map<Long, Long> threadAllocatedBytes() {
+        Map<Long, Long> bytes = new HashMap<>();
+        if (!isAllocationSupported()) {
+            return bytes;
+        }
+
+        long[] ids = ALLOCATIONS.getAllThreadIds();
+        long[] allocated = ALLOCATIONS.getThreadAllocatedBytes(ids);
+        for (int i = 0; i < ids.length; i++) {
+            // -1 for a thread that ended in the meantime
+            if (allocated[i] >= 0) {
+                bytes.put(ids[i], allocated[i]);
+            }
+        }
+        return bytes;
+    }
+
+    private static long totalGcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long totalGcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+
+    /**
+     * @return the bytes allocated by all the threads of the JVM, or -1 when the JVM does not count them
+     */
+    public long allocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public long gcCount() {
+        return gcCount;
+    }
+
+    public long gcMillis() {
+        return gcMillis;
+    }
+
+    public int startThreads() {
+        return startThreads;
+    }
+
+    public int endThreads() {
+        return endThreads;
+    }
+
+    public int peakThreads() {
+        return peakThreads;
+    }
+
+    @Override
+    public String toString() {
+        String allocated = allocatedBytes < 0 ? "n/a" : String.format("%.1f MB", allocatedBytes / (1024.0 * 1024));
+        return String.format("JVM allocated %s, gc %d (%d ms), threads %d -> %d (peak %d)",
+                allocated, gcCount, gcMillis, startThreads, endThreads, peakThreads);
+    }
+}
@@ -0,0 +1,90 @@
+package util;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.functions.Func1;
+import rx.schedulers.Schedulers;
+
+/**
+ * Retry with exponential backoff and full jitter, for <code>retryWhen</code>:
+ * <pre>
+ * call.retryWhen(new RetryWithBackoff(3, 100, 2000, TimeUnit.MILLISECONDS, e -&gt; e instanceof MockTestException))
+ * </pre>
+ * Retry <code>n</code> waits a random time between 0 and <code>min(maxDelay, baseDelay * 2^(n-1))</code>, so clients
+ * failing together do not come back together.  The wait is a timer on the scheduler, no thread sleeps through it.
+ *
+ * An error that is not retryable, or the error of the last attempt, is passed on.
+ */
+public class RetryWithBackoff implements Func1<Observable<? extends Throwable>, Observable<?>> {
+
+    private final int maxRetries;
+    private final long baseDelay;
+    private final long maxDelay;
+    private final TimeUnit unit;
+    private final Func1<Throwable, Boolean> retryable;
+    private final Random random;
+    private final Scheduler scheduler;
+
+    private final AtomicLong retries = new AtomicLong();
+
+    public RetryWithBackoff(int maxRetries, long baseDelay, long maxDelay, TimeUnit unit, Func1<Throwable, Boolean> retryable) {
+        this(maxRetries, baseDelay, maxDelay, unit, retryable, new Random(), Schedulers.computation());
+    }
+
+    /**
+     * @param random draws the jitter
+     * @param scheduler runs the backoff timers
+     */
+    public RetryWithBackoff(int maxRetries, long baseDelay, long maxDelay, TimeUnit unit, Func1<Throwable, Boolean> retryable,
+            Random random, Scheduler scheduler) {
+        if (maxRetries < 0 || baseDelay < 0 || maxDelay < baseDelay) {
+            throw new IllegalArgumentException("maxRetries and baseDelay must not be negative, maxDelay not below baseDelay");
+        }
+
+        this.maxRetries = maxRetries;
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+        this.unit = unit;
+        this.retryable = retryable;
+        this.random = random;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public Observable<?> call(Observable<? extends Throwable> errors) {
+        // called for every subscription, the count of attempts is its own
+        int[] retry = {0};
+
+        return errors.flatMap(error -> {
+            if (retry[0] >= maxRetries || !retryable.call(error)) {
+                return Observable.error(error);
+            }
+
+            retry[0]++;
+            retries.incrementAndGet();
+            return Observable.timer(delayOf(retry[0]), unit, scheduler);
+        });
+    }
+
+    /**
+     * Full jitter: anywhere from 0 to the exponential delay of the retry.
+     */
+    private long delayOf(int retry) {
+        long exponential = baseDelay;
+        for (int i = 1; i < retry && exponential < maxDelay; i++) {
+            exponential <<= 1;
+        }
+        return (long) (random.nextDouble() * Math.min(exponential, maxDelay));
+    }
+
+    /**
+     * Retries made, by every subscription.
+     */
+    public long retries() {
+        return retries.get();
+    }
+}
@@ -0,0 +1,128 @@
+package util;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Ticker;
+
+import rx.Scheduler;
+import rx.Subscription;
+import rx.functions.Action0;
+
+/**
+ * What the tasks of one scheduler went through: the wait from their submission (or the end of their delay) to their
+ * start, which is queueing, their run time, the peak of tasks running at once and the threads that ran them.
+ *
+ * A wait that grows while the run time stays flat means the latency comes from a pool too small for the work, not
+ * from the work itself.
+ */
+public class SchedulerStats {
+
+    private final String name;
+    private final Ticker ticker;
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram runTime = new LatencyHistogram();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger peakActive = new AtomicInteger();
+    private final Set<Long> threads = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param ticker times the queue wait and the run of each task
+     */
+    public SchedulerStats(String name, Ticker ticker) {
+        this.name = name;
+        this.ticker = ticker;
+    }
+
+    /**
+     * Worker recording every action scheduled through it.
+     */
+    public Scheduler.Worker instrument(Scheduler.Worker worker) {
+        return new InstrumentedWorker(worker);
+    }
+
+    private Action0 instrument(InstrumentedWorker worker, Action0 action, long delayNanos) {
+        long dueNanos = ticker.read() + delayNanos;
+        return () -> {
+            long startNanos = ticker.read();
+            queueWait.record(Math.max(0, startNanos - dueNanos));
+            peakActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            if (!worker.threadCounted) {
+                worker.threadCounted = true;
+                threads.add(Thread.currentThread().getId());
+            }
+            try {
+                action.call();
+            } finally {
+                active.decrementAndGet();
+                runTime.record(ticker.read() - startNanos);
+            }
+        };
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public LatencyHistogram queueWait() {
+        return queueWait;
+    }
+
+    public LatencyHistogram runTime() {
+        return runTime;
+    }
+
+    public int peakActive() {
+        return peakActive.get();
+    }
+
+    /**
+     * Distinct threads that ran a task, the pool size actually used.  Each worker counts the thread of its first task
+     * only: the workers of io(), computation() and newThread() stay on one thread.
+     */
+    public int threads() {
+        return threads.size();
+    }
+
+    public String summary() {
+        return String.format("%-12s threads=%d peak active=%d%n    queue wait %s%n    run time   %s", name,
+                threads(), peakActive(), queueWait.summary(), runTime.summary());
+    }
+
+    private final class InstrumentedWorker extends Scheduler.Worker {
+        private final Scheduler.Worker actual;
+        // the tasks of a worker run one after the other
+        private boolean threadCounted;
+
+        private InstrumentedWorker(Scheduler.Worker actual) {
+            this.actual = actual;
+        }
+
+        @Override
+        public Subscription schedule(Action0 action) {
+            return actual.schedule(instrument(this, action, 0));
+        }
+
+        @Override
+        public Subscription schedule(Action0 action, long delayTime, TimeUnit unit) {
+            return actual.schedule(instrument(this, action, unit.toNanos(delayTime)), delayTime, unit);
+        }
+
+        @Override
+        public long now() {
+            return actual.now();
+        }
+
+        @Override
+        public void unsubscribe() {
+            actual.unsubscribe();
+        }
+
+        @Override
+        public boolean isUnsubscribed() {
+            return actual.isUnsubscribed();
+        }
+    }
+}
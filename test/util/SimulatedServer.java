@@ -0,0 +1,100 @@
+package util;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.schedulers.Schedulers;
+
+/**
+ * A service with a fixed number of workers in front of a queue, so that its latency grows with the load put on it:
+ * a call waits for a free worker, then takes a latency drawn from the model.
+ *
+ * Nothing holds a thread: the work is a timer on the scheduler.  A caller that unsubscribes while queued is skipped
+ * when its turn comes, one that unsubscribes while served still keeps its worker busy until the work is done, as a real
+ * server would.
+ */
+public class SimulatedServer {
+
+    private final int workers;
+    private final LatencyModel latency;
+    private final Scheduler scheduler;
+
+    private final Queue<Subscriber<? super UUID>> queue = new ArrayDeque<>();
+    private int busy;
+
+    public SimulatedServer(int workers, LatencyModel latency) {
+        this(workers, latency, Schedulers.computation());
+    }
+
+    /**
+     * @param scheduler runs the timers of the work
+     */
+    public SimulatedServer(int workers, LatencyModel latency, Scheduler scheduler) {
+        if (workers <= 0) {
+            throw new IllegalArgumentException("workers must be positive");
+        }
+
+        this.workers = workers;
+        this.latency = latency;
+        this.scheduler = scheduler;
+    }
+
+    public Observable<UUID> call() {
+        return Observable.create(subscriber -> {
+            synchronized (this) {
+                if (busy == workers) {
+                    queue.add(subscriber);
+                    return;
+                }
+                busy++;
+            }
+            serve(subscriber);
+        });
+    }
+
+    private void serve(Subscriber<? super UUID> subscriber) {
+        Scheduler.Worker worker = scheduler.createWorker();
+        worker.schedule(() -> {
+            worker.unsubscribe();
+            release();
+            if (!subscriber.isUnsubscribed()) {
+                subscriber.onNext(UUID.randomUUID());
+                subscriber.onCompleted();
+            }
+        }, latency.nextMicros(), TimeUnit.MICROSECONDS);
+    }
+
+    private void release() {
+        Subscriber<? super UUID> next;
+        synchronized (this) {
+            do {
+                next = queue.poll();
+            } while (next != null && next.isUnsubscribed());
+
+            if (next == null) {
+                busy--;
+                return;
+            }
+        }
+        serve(next);
+    }
+
+    /**
+     * Workers serving a call.
+     */
+    public synchronized int busy() {
+        return busy;
+    }
+
+    /**
+     * Calls waiting for a worker.
+     */
+    public synchronized int queued() {
+        return queue.size();
+    }
+}
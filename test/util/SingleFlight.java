@@ -0,0 +1,126 @@
+package util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import rx.Observable;
+import rx.Subscription;
+import rx.observables.ConnectableObservable;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * Coalesces concurrent subscriptions to the same request into one execution.
+ *
+ * <pre>
+ * observable.compose(singleFlight.flight(key))
+ * </pre>
+ * The first subscription for a key subscribes to the source, the ones arriving while it is in flight share it and
+ * receive its items, replayed if they came late, and its error.  Once it terminates the key is free again: the next
+ * subscription starts a fresh call, nothing is cached (see {@link ObservableCache} for that).
+ *
+ * Unsubscribing leaves the flight to the other subscribers; when the last one leaves the source is unsubscribed and
+ * the key is freed.
+ *
+ * A flight is joined and left under its own lock, and removes itself from the map under that lock when it ends, so a
+ * subscription that looked up a flight just as it ended sees it has ended and looks again: an ended flight never
+ * connects to its source a second time.
+ */
+public class SingleFlight<K> {
+
+    private final ConcurrentMap<K, Flight<?>> inFlight = new ConcurrentHashMap<>();
+
+    public <V> Observable.Transformer<V, V> flight(K key) {
+        return source -> Observable.defer(() -> {
+            for (;;) {
+                @SuppressWarnings("unchecked")
+                Flight<V> flight = (Flight<V>) inFlight.computeIfAbsent(key, k -> new Flight<>(k, source));
+                Observable<V> joined = flight.join();
+                if (joined != null) {
+                    return joined;
+                }
+                // ended after the lookup, and already removed
+            }
+        });
+    }
+
+    /**
+     * Keys with an execution in flight.
+     */
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    private final class Flight<V> {
+        private final K key;
+        private final ConnectableObservable<V> replay;
+        private int subscribers;
+        private boolean connected;
+        private boolean ended;
+        private Subscription connection;
+
+        private Flight(K key, Observable<V> source) {
+            this.key = key;
+            // freed before the subscribers see the terminal event, so they can start the next flight from it
+            replay = source
+                    .doOnTerminate(this::end)
+                    .replay();
+        }
+
+        /**
+         * @return the shared execution, or null once it has ended
+         */
+        private Observable<V> join() {
+            synchronized (this) {
+                if (ended) {
+                    return null;
+                }
+                subscribers++;
+            }
+            return Observable.create(child -> {
+                child.add(Subscriptions.create(this::leave));
+                replay.unsafeSubscribe(child);
+                connect();
+            });
+        }
+
+        private void connect() {
+            synchronized (this) {
+                if (connected || ended) {
+                    return;
+                }
+                connected = true;
+            }
+            replay.connect(this::connected);
+        }
+
+        private void connected(Subscription subscription) {
+            boolean abandoned;
+            synchronized (this) {
+                connection = subscription;
+                abandoned = ended;
+            }
+            if (abandoned) {
+                subscription.unsubscribe();
+            }
+        }
+
+        private void leave() {
+            Subscription abandoned;
+            synchronized (this) {
+                if (--subscribers > 0 || ended) {
+                    return;
+                }
+                end();
+                abandoned = connection;
+            }
+            if (abandoned != null) {
+                abandoned.unsubscribe();
+            }
+        }
+
+        private synchronized void end() {
+            ended = true;
+            inFlight.remove(key, this);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package util;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Ticker;
+
+import rx.Observable;
+import rx.Subscriber;
+
+/**
+ * Per-stage latencies of an Observable pipeline, recorded into {@link LatencyHistogram}s.
+ *
+ * A stage is marked by composing a probe at that point of the pipeline:
+ * <pre>
+ * Observable.fromCallable(...)
+ *     .compose(latencies.stage("callable"))
+ *     .subscribeOn(Schedulers.io())
+ *     .compose(latencies.stage("io"))
+ *     .map(...)
+ * </pre>
+ * Each probe records two histograms:
+ * <ul>
+ * <li><code>first item</code>: from the subscription reaching the probe to the first item passing it, which is the time
+ * of everything upstream, scheduler queueing included.  The difference between two probes is the time of the stage
+ * in between.</li>
+ * <li><code>onNext</code>: time spent in the downstream <code>onNext</code>, which is the synchronous work of the
+ * operators after the probe, up to the next asynchronous boundary.</li>
+ * </ul>
+ */
+public class StageLatencies {
+
+    private final Ticker ticker;
+    private final Map<String, LatencyHistogram> histograms = new LinkedHashMap<>();
+
+    public StageLatencies() {
+        this(Ticker.systemTicker());
+    }
+
+    /**
+     * @param ticker times the first item reaching each probe and the downstream onNext it runs
+     */
+    public StageLatencies(Ticker ticker) {
+        this.ticker = ticker;
+    }
+
+    public <T> Observable.Transformer<T, T> stage(String name) {
+        // resolved once, the probes only touch their own histograms
+        LatencyHistogram firstItem = histogram(name + " first item");
+        LatencyHistogram onNext = histogram(name + " onNext");
+
+        return source -> source.lift(subscriber -> new Subscriber<T>(subscriber) {
+            private final long subscribedNanos = ticker.read();
+            private boolean first = true;
+
+            @Override
+            public void onNext(T t) {
+                long start = ticker.read();
+                if (first) {
+                    first = false;
+                    firstItem.record(start - subscribedNanos);
+                }
+                subscriber.onNext(t);
+                onNext.record(ticker.read() - start);
+            }
+
+            @Override
+            public void onError(Throwable e) {
+                subscriber.onError(e);
+            }
+
+            @Override
+            public void onCompleted() {
+                subscriber.onCompleted();
+            }
+        });
+    }
+
+    public synchronized LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    /**
+     * p50, p99 and p999 of every histogram that recorded something, in the order the stages were declared.
+     */
+    public void print(String name, PrintStream out) {
+        List<Map.Entry<String, LatencyHistogram>> recorded = new ArrayList<>();
+        synchronized (this) {
+            for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+                if (entry.getValue().count() > 0) {
+                    recorded.add(entry);
+                }
+            }
+        }
+        if (recorded.isEmpty()) {
+            return;
+        }
+
+        StringBuilder dump = new StringBuilder(">>Latency [").append(name).append("]");
+        for (Map.Entry<String, LatencyHistogram> entry : recorded) {
+            dump.append(String.format("%n  %-24s %s", entry.getKey(), entry.getValue().summary()));
+        }
+        out.println(dump);
+    }
+}
@@ -0,0 +1,223 @@
+package util;
+
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Ticker;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+
+import rx.Observable;
+import rx.Subscriber;
+import rx.exceptions.Exceptions;
+import rx.functions.Func1;
+
+/**
+ * Checks a stream item by item instead of collecting it with <code>toList()</code>, so that a scenario can run tens of
+ * millions of items: the count, the last item and the histogram of the gaps between items are all it keeps, plus the set
+ * of a uniqueness check.
+ *
+ * <pre>
+ * new StreamVerifier&lt;UUID&gt;(ticker())
+ *     .expectCount(repeatingCount)
+ *     .expectProbablyDistinct(StreamVerifier.uuidFunnel(), repeatingCount, 0.01)
+ *     .expectMaxGap(1, TimeUnit.SECONDS)
+ *     .verify(observable);
+ * </pre>
+ * A violation fails fast: the subscription is cancelled at the offending item and {@link #verify(Observable)} throws an
+ * {@link AssertionError} naming it.  An error of the stream itself is rethrown as is.
+ *
+ * Uniqueness is checked either exactly, on a {@link UuidSet} of 32 to 64 bytes per item, or with a Bloom filter of fixed
+ * size.  The filter cannot tell a duplicate from a false positive: it fails only on more possible duplicates than twice
+ * its false positive rate allows, which catches a stream replaying its items, not a single duplicate.
+ */
+public class StreamVerifier<T> extends Subscriber<T> {
+
+    private final Ticker ticker;
+    private final CountDownLatch terminated = new CountDownLatch(1);
+    private final LatencyHistogram gaps = new LatencyHistogram();
+
+    private long expectedCount = -1;
+    private Comparator<? super T> order;
+    private Func1<? super T, UUID> uuidOf;
+    private UuidSet distinct;
+    private BloomFilter<? super T> probablyDistinct;
+    private long allowedPossibleDuplicates;
+    private long maxGapNanos = Long.MAX_VALUE;
+    private double minItemsPerSecond;
+
+    // written by the emitting thread, read after terminated
+    private long count;
+    private T last;
+    private long possibleDuplicates;
+    private long startNanos;
+    private long lastNanos;
+    private long endNanos;
+    private volatile AssertionError failure;
+    private volatile Throwable error;
+
+    public StreamVerifier() {
+        this(Ticker.systemTicker());
+    }
+
+    /**
+     * @param ticker times the gap between consecutive items and the items per second
+     */
+    public StreamVerifier(Ticker ticker) {
+        this.ticker = ticker;
+    }
+
+    public static Funnel<UUID> uuidFunnel() {
+        return (uuid, into) -> into.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+    }
+
+    public StreamVerifier<T> expectCount(long count) {
+        this.expectedCount = count;
+        return this;
+    }
+
+    /**
+     * Every item equal to or after the previous one.
+     */
+    public StreamVerifier<T> expectOrdered(Comparator<? super T> order) {
+        this.order = order;
+        return this;
+    }
+
+    /**
+     * No two items with the same UUID, checked exactly.
+     */
+    public StreamVerifier<T> expectDistinct(Func1<? super T, UUID> uuidOf) {
+        this.uuidOf = uuidOf;
+        this.distinct = new UuidSet();
+        return this;
+    }
+
+    /**
+     * No more duplicates than the false positives of a Bloom filter sized for <code>expectedItems</code>.
+     */
+    public StreamVerifier<T> expectProbablyDistinct(Funnel<? super T> funnel, long expectedItems, double falsePositiveRate) {
+        this.probablyDistinct = BloomFilter.create(funnel, expectedItems, falsePositiveRate);
+        this.allowedPossibleDuplicates = (long) (expectedItems * falsePositiveRate * 2) + 10;
+        return this;
+    }
+
+    /**
+     * No wait longer than <code>maxGap</code> for the first item, or between two items, checked when the item arrives.
+     */
+    public StreamVerifier<T> expectMaxGap(long maxGap, TimeUnit unit) {
+        this.maxGapNanos = unit.toNanos(maxGap);
+        return this;
+    }
+
+    /**
+     * Checked on completion, over the time from the subscription.
+     */
+    public StreamVerifier<T> expectMinThroughput(double itemsPerSecond) {
+        this.minItemsPerSecond = itemsPerSecond;
+        return this;
+    }
+
+    /**
+     * Subscribes, waits for the stream to end or to fail a check.
+     */
+    public StreamVerifier<T> verify(Observable<? extends T> observable) {
+        observable.subscribe(this);
+        try {
+            terminated.await();
+        } catch (InterruptedException e) {
+            unsubscribe();
+            throw new IllegalStateException(e);
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+        if (error != null) {
+            throw Exceptions.propagate(error);
+        }
+        return this;
+    }
+
+    @Override
+    public void onStart() {
+        startNanos = ticker.read();
+        lastNanos = startNanos;
+    }
+
+    @Override
+    public void onNext(T item) {
+        if (failure != null) {
+            return;
+        }
+
+        long now = ticker.read();
+        long gap = now - lastNanos;
+        lastNanos = now;
+        gaps.record(gap);
+        count++;
+
+        if (expectedCount >= 0 && count > expectedCount) {
+            fail("More than the " + expectedCount + " items expected");
+        } else if (gap > maxGapNanos) {
+            fail("Waited " + TimeUnit.NANOSECONDS.toMillis(gap) + " ms for item " + item);
+        } else if (order != null && last != null && order.compare(last, item) > 0) {
+            fail("Item " + item + " out of order after " + last);
+        } else if (distinct != null && !distinct.add(uuidOf.call(item))) {
+            fail("Duplicate item " + item);
+        } else if (probablyDistinct != null && !probablyDistinct.put(item) && ++possibleDuplicates > allowedPossibleDuplicates) {
+            fail(possibleDuplicates + " possible duplicates, the last " + item);
+        }
+
+        if (order != null) {
+            last = item;
+        }
+    }
+
+    @Override
+    public void onError(Throwable e) {
+        endNanos = ticker.read();
+        error = e;
+        terminated.countDown();
+    }
+
+    @Override
+    public void onCompleted() {
+        endNanos = ticker.read();
+        if (expectedCount >= 0 && count != expectedCount) {
+            fail("Expected " + expectedCount + " items");
+        } else if (throughput() < minItemsPerSecond) {
+            fail(String.format("Throughput of %.0f items/s", throughput()));
+        }
+        terminated.countDown();
+    }
+
+    private void fail(String message) {
+        endNanos = ticker.read();
+        failure = new AssertionError(message + ", after " + count + " items");
+        unsubscribe();
+        terminated.countDown();
+    }
+
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Wait for the first item and between items.
+     */
+    public LatencyHistogram gaps() {
+        return gaps;
+    }
+
+    public double throughput() {
+        long nanos = Math.max(1, endNanos - startNanos);
+        return count * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+
+    public String summary() {
+        return String.format("%d items, %.0f items/s, gap %s", count, throughput(), gaps.summary());
+    }
+}
@@ -0,0 +1,144 @@
+package util;
+
+import java.io.PrintStream;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.base.Ticker;
+
+import rx.Scheduler;
+import rx.plugins.RxJavaPlugins;
+import rx.plugins.RxJavaSchedulersHook;
+import rx.schedulers.Schedulers;
+
+/**
+ * Schedulers hook registered once for the whole test run.
+ *
+ * {@link Schedulers} reads the hook only when it is first used, so the io(), computation() and newThread()
+ * schedulers handed out here delegate to whatever the current test selected: the default RxJava schedulers,
+ * or the scheduler of a {@link VirtualClock}.  Their workers record {@link SchedulerStats} for the current test.
+ */
+public class TestSchedulersHook extends RxJavaSchedulersHook {
+
+    private static final TestSchedulersHook INSTANCE = register();
+
+    // the default schedulers are created on first use, creating them registers a hook when none is registered yet
+    private final SwitchableScheduler io = new SwitchableScheduler("io", RxJavaSchedulersHook::createIoScheduler);
+    private final SwitchableScheduler computation = new SwitchableScheduler("computation", RxJavaSchedulersHook::createComputationScheduler);
+    private final SwitchableScheduler newThread = new SwitchableScheduler("newThread", RxJavaSchedulersHook::createNewThreadScheduler);
+
+    private TestSchedulersHook() {
+    }
+
+    public static TestSchedulersHook getInstance() {
+        return INSTANCE;
+    }
+
+    private static TestSchedulersHook register() {
+        TestSchedulersHook hook = new TestSchedulersHook();
+        RxJavaPlugins.getInstance().registerSchedulersHook(hook);
+
+        if (Schedulers.io() != hook.io) {
+            throw new IllegalStateException("rx.schedulers.Schedulers was initialized before the test schedulers hook was registered");
+        }
+        return hook;
+    }
+
+    /**
+     * Routes io(), computation() and newThread() to the clock's scheduler.
+     */
+    public void useVirtualTime(VirtualClock clock) {
+        io.current = clock.scheduler();
+        computation.current = clock.computationScheduler();
+        newThread.current = clock.scheduler();
+    }
+
+    public void useRealTime() {
+        io.current = null;
+        computation.current = null;
+        newThread.current = null;
+    }
+
+    /**
+     * Starts new stats for io(), computation() and newThread(), timed with the given ticker.
+     */
+    public void instrument(Ticker ticker) {
+        io.stats = new SchedulerStats(io.name, ticker);
+        computation.stats = new SchedulerStats(computation.name, ticker);
+        newThread.stats = new SchedulerStats(newThread.name, ticker);
+    }
+
+    public SchedulerStats ioStats() {
+        return io.stats;
+    }
+
+    public SchedulerStats computationStats() {
+        return computation.stats;
+    }
+
+    public SchedulerStats newThreadStats() {
+        return newThread.stats;
+    }
+
+    /**
+     * Stats of the schedulers that ran something since {@link #instrument(Ticker)}.
+     */
+    public void printStats(String name, PrintStream out) {
+        StringBuilder dump = new StringBuilder();
+        for (SwitchableScheduler scheduler : new SwitchableScheduler[] { io, computation, newThread }) {
+            SchedulerStats stats = scheduler.stats;
+            if (stats != null && stats.runTime().count() > 0) {
+                dump.append(String.format("%n  %s", stats.summary()));
+            }
+        }
+        if (dump.length() > 0) {
+            out.println(">>Schedulers [" + name + "]" + dump);
+        }
+    }
+
+    @Override
+    public Scheduler getIOScheduler() {
+        return io;
+    }
+
+    @Override
+    public Scheduler getComputationScheduler() {
+        return computation;
+    }
+
+    @Override
+    public Scheduler getNewThreadScheduler() {
+        return newThread;
+    }
+
+    private static final class SwitchableScheduler extends Scheduler {
+        private final String name;
+        private final Supplier<Scheduler> real;
+        // null selects the default scheduler
+        private volatile Scheduler current;
+        // null records nothing
+        private volatile SchedulerStats stats;
+
+        private SwitchableScheduler(String name, Supplier<Scheduler> real) {
+            this.name = name;
+            this.real = Suppliers.memoize(real);
+        }
+
+        private Scheduler current() {
+            Scheduler scheduler = current;
+            return scheduler != null ? scheduler : real.get();
+        }
+
+        @Override
+        public Worker createWorker() {
+            Worker worker = current().createWorker();
+            SchedulerStats recording = stats;
+            return recording != null ? recording.instrument(worker) : worker;
+        }
+
+        @Override
+        public long now() {
+            return current().now();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package util;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Ticker;
+
+/**
+ * Records which stage of a pipeline ran on which thread and when, cheaply enough to leave on in concurrent scenarios.
+ *
+ * Every thread writes to its own pre-sized ring of (stage, ticker time) pairs: no lock, no allocation after the ring of a
+ * thread is created, and no <code>toString</code> of the thread.  When a ring is full the oldest records are overwritten.
+ * The rings are only merged into a timeline by {@link #timeline()}, once the scenario is done.
+ *
+ * Stages are expected to be constants, the reference is stored as is.
+ */
+public class TraceRecorder {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private final int capacity;
+    private final Queue<Ring> rings = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<Ring> ring;
+    private final Ticker ticker;
+    private final long startNanos;
+
+    public TraceRecorder() {
+        this(Ticker.systemTicker());
+    }
+
+    /**
+     * @param ticker stamps each event of the timeline, relative to the creation of the recorder
+     */
+    public TraceRecorder(Ticker ticker) {
+        this(ticker, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacityPerThread records kept per thread, rounded up to a power of two
+     */
+    public TraceRecorder(Ticker ticker, int capacityPerThread) {
+        this.ticker = ticker;
+        startNanos = ticker.read();
+        capacity = Math.max(Integer.highestOneBit(capacityPerThread - 1) << 1, 1);
+        ring = ThreadLocal.withInitial(() -> {
+            Ring created = new Ring(Thread.currentThread(), capacity);
+            rings.add(created);
+            return created;
+        });
+    }
+
+    public void record(String stage) {
+        ring.get().record(stage, ticker.read());
+    }
+
+    /**
+     * Records overwritten because a ring was full.
+     */
+    public long dropped() {
+        long dropped = 0;
+        for (Ring ring : rings) {
+            dropped += Math.max(0, ring.count.get() - capacity);
+        }
+        return dropped;
+    }
+
+    /**
+     * Every retained record of every thread, in time order.
+     */
+    public List<Record> timeline() {
+        List<Record> timeline = new ArrayList<>();
+        for (Ring ring : rings) {
+            ring.copyTo(timeline, startNanos);
+        }
+        timeline.sort(Comparator.comparingLong(Record::getNanosSinceStart));
+        return timeline;
+    }
+
+    public void print(String name, PrintStream out) {
+        List<Record> timeline = timeline();
+        if (timeline.isEmpty()) {
+            return;
+        }
+
+        StringBuilder dump = new StringBuilder(">>Trace [").append(name).append("] ").append(timeline.size()).append(" records");
+        long dropped = dropped();
+        if (dropped > 0) {
+            dump.append(", ").append(dropped).append(" dropped");
+        }
+        for (Record record : timeline) {
+            dump.append(String.format("%n  +%10.3f ms  %-10s %s", record.getNanosSinceStart() / 1e6, record.getStage(), record.getThreadName()));
+        }
+        out.println(dump);
+    }
+
+    public static final class Record {
+        private final String stage;
+        private final long threadId;
+        private final String threadName;
+        private final long nanosSinceStart;
+
+        private Record(String stage, long threadId, String threadName, long nanosSinceStart) {
+            this.stage = stage;
+            this.threadId = threadId;
+            this.threadName = threadName;
+            this.nanosSinceStart = nanosSinceStart;
+        }
+
+        public String getStage() {
+            return stage;
+        }
+
+        public long getThreadId() {
+            return threadId;
+        }
+
+        public String getThreadName() {
+            return threadName;
+        }
+
+        public long getNanosSinceStart() {
+            return nanosSinceStart;
+        }
+    }
+
+    /**
+     * Single writer ring, the owning thread publishes its writes with an ordered store of the count.
+     */
+    private static final class Ring {
+        private final long threadId;
+        private final String threadName;
+        private final String[] stages;
+        private final long[] nanos;
+        private final int mask;
+        private final AtomicLong count = new AtomicLong();
+
+        private Ring(Thread thread, int capacity) {
+            threadId = thread.getId();
+            threadName = thread.getName();
+            stages = new String[capacity];
+            nanos = new long[capacity];
+            mask = capacity - 1;
+        }
+
+        private void record(String stage, long nanoTime) {
+            long index = count.get();
+            stages[(int) (index & mask)] = stage;
+            nanos[(int) (index & mask)] = nanoTime;
+            count.lazySet(index + 1);
+        }
+
+        private void copyTo(List<Record> timeline, long startNanos) {
+            long end = count.get();
+            for (long index = Math.max(0, end - stages.length); index < end; index++) {
+                int slot = (int) (index & mask);
+                timeline.add(new Record(stages[slot], threadId, threadName, nanos[slot] - startNanos));
+            }
+        }
+    }
+}
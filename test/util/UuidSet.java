@@ -0,0 +1,126 @@
+package util;
+
+import java.util.UUID;
+
+/**
+ * Set of UUIDs kept as pairs of longs in one open addressing table, linear probing: 32 to 64 bytes per UUID, against
+ * about 80 for a <code>HashSet&lt;UUID&gt;</code> and its UUID objects, and about 150 for the strings of a
+ * <code>LinkedHashSet&lt;String&gt;</code>.
+ *
+ * The all-zero UUID marks an empty slot and is tracked on the side.
+ */
+public class UuidSet {
+
+    private static final int MIN_CAPACITY = 16;
+
+    // most then least significant bits of each slot
+    private long[] table;
+    private int mask;
+    private int size;
+    private boolean containsZero;
+
+    public UuidSet() {
+        this(MIN_CAPACITY);
+    }
+
+    public UuidSet(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        // load factor 0.5
+        while (capacity < expectedSize * 2L) {
+            capacity <<= 1;
+        }
+        table = new long[capacity * 2];
+        mask = capacity - 1;
+    }
+
+    public boolean add(UUID uuid) {
+        return add(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    /**
+     * @return false when the UUID was already in the set
+     */
+    public boolean add(long msb, long lsb) {
+        if (msb == 0 && lsb == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+
+        int slot = slot(msb, lsb);
+        while (true) {
+            long slotMsb = table[slot * 2];
+            long slotLsb = table[slot * 2 + 1];
+            if (slotMsb == 0 && slotLsb == 0) {
+                break;
+            }
+            if (slotMsb == msb && slotLsb == lsb) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        table[slot * 2] = msb;
+        table[slot * 2 + 1] = lsb;
+        if (++size * 2 > mask + 1) {
+            grow();
+        }
+        return true;
+    }
+
+    public boolean contains(UUID uuid) {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        if (msb == 0 && lsb == 0) {
+            return containsZero;
+        }
+
+        for (int slot = slot(msb, lsb);; slot = (slot + 1) & mask) {
+            long slotMsb = table[slot * 2];
+            long slotLsb = table[slot * 2 + 1];
+            if (slotMsb == msb && slotLsb == lsb) {
+                return true;
+            }
+            if (slotMsb == 0 && slotLsb == 0) {
+                return false;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int slot(long msb, long lsb) {
+        // the murmur3 finalizer, the time-ordered and counter ids have little entropy in some bits
+        long hash = msb * 31 + lsb;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (int) hash & mask;
+    }
+
+    private void grow() {
+        long[] old = table;
+        table = new long[old.length * 2];
+        mask = (mask << 1) | 1;
+
+        for (int i = 0; i < old.length; i += 2) {
+            long msb = old[i];
+            long lsb = old[i + 1];
+            if (msb != 0 || lsb != 0) {
+                int slot = slot(msb, lsb);
+                while (table[slot * 2] != 0 || table[slot * 2 + 1] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot * 2] = msb;
+                table[slot * 2 + 1] = lsb;
+            }
+        }
+    }
+}
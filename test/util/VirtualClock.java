@@ -0,0 +1,425 @@
+package util;
+
+import java.lang.Thread.State;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import com.google.common.base.Ticker;
+
+import rx.Scheduler;
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.schedulers.TestScheduler;
+import rx.subscriptions.CompositeSubscription;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * Virtual time for tests that simulate slow services.
+ *
+ * Time is kept by a {@link TestScheduler} and only moves forward when every participating thread
+ * (the test thread and the threads of {@link #scheduler()}) is parked, i.e. when nothing can make
+ * progress without the clock moving. The clock then jumps to the next pending deadline: a
+ * {@link #sleep(long)} or a delayed action such as a <code>timeout</code> or <code>delay</code>.
+ *
+ * Quiescence is detected by sampling thread states, so a thread that was just unparked but has
+ * not been given a CPU yet looks idle. The state has to hold for several samples in a row before
+ * the clock moves, which makes this good enough for tests but not a general purpose simulator.
+ * Every scheduler used by the scenario has to come from {@link #scheduler()} (see {@link TestSchedulersHook}),
+ * a thread blocked on anything else lets virtual time run ahead of it.  When every thread stays parked with no deadline
+ * left for several seconds of wall clock time, the clock reports a stall and interrupts the registered threads.
+ */
+public class VirtualClock {
+
+    private static final long POLL_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final int QUIESCENT_POLLS = 5;
+    // wall clock time every thread may stay parked with no deadline to move to before the clock reports a stall
+    private static final long STALL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final TestScheduler timeline = new TestScheduler();
+    private final Scheduler.Worker timers = timeline.createWorker();
+    // deadlines of the timers, guarded by this
+    private final PriorityQueue<Deadline> deadlines = new PriorityQueue<>();
+    private final Set<Thread> participants = ConcurrentHashMap.newKeySet();
+    // the participants not owned by the clock, interrupted on a stall
+    private final Set<Thread> registered = ConcurrentHashMap.newKeySet();
+    private final Set<CountDownLatch> sleepers = ConcurrentHashMap.newKeySet();
+    // workers handed to a thread but not started yet, and sleepers woken but not running yet
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger threadCount = new AtomicInteger();
+    private final ExecutorService executor = Executors.newCachedThreadPool(this::newThread);
+    private final ThreadPoolExecutor computationExecutor = (ThreadPoolExecutor) Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), this::newThread);
+    private final Scheduler scheduler = new VirtualScheduler(executor);
+    private final Scheduler computationScheduler = new VirtualScheduler(computationExecutor);
+    private final Thread driver;
+
+    private volatile long nowNanos;
+    private volatile boolean running = true;
+
+    public VirtualClock() {
+        driver = new Thread(this::drive, "VirtualClock-driver");
+        driver.setDaemon(true);
+        driver.start();
+    }
+
+    /**
+     * Registers a thread that is not owned by the clock, such as the test thread, so that time
+     * does not move while it is running.
+     */
+    public void register(Thread thread) {
+        registered.add(thread);
+        participants.add(thread);
+    }
+
+    public long now(TimeUnit unit) {
+        return unit.convert(nowNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Ticker for {@link com.google.common.base.Stopwatch} so the existing elapsed time assertions read virtual time.
+     */
+    public Ticker ticker() {
+        return new Ticker() {
+            @Override
+            public long read() {
+                return nowNanos;
+            }
+        };
+    }
+
+    /**
+     * Scheduler whose threads take part in the quiescence detection and whose delayed actions run in virtual time.
+     * Like io() it starts a thread per busy worker.
+     */
+    public Scheduler scheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Same as {@link #scheduler()}, but like computation() its workers share one thread per core.
+     */
+    public Scheduler computationScheduler() {
+        return computationScheduler;
+    }
+
+    /**
+     * Blocks the calling thread until the clock has moved forward by the given amount.
+     */
+    public void sleep(long millis) {
+        sleep(millis, TimeUnit.MILLISECONDS);
+    }
+
+    public void sleep(long duration, TimeUnit unit) {
+        if (duration <= 0 || !running) {
+            return;
+        }
+
+        CountDownLatch wakeUp = new CountDownLatch(1);
+        sleepers.add(wakeUp);
+        // shut down since the first check: shutdown() released the sleepers before this one was added
+        if (!running) {
+            sleepers.remove(wakeUp);
+            return;
+        }
+        schedule(() -> {
+            pending.incrementAndGet();
+            wakeUp.countDown();
+        }, duration, unit);
+
+        try {
+            wakeUp.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            if (sleepers.remove(wakeUp) && wakeUp.getCount() == 0) {
+                pending.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Stops the clock and releases every sleeping thread; work still in flight finishes without delays.
+     */
+    public void shutdown() {
+        // flipped before the sleepers are released, a sleep() registering meanwhile sees it and does not wait
+        running = false;
+        LockSupport.unpark(driver);
+        for (CountDownLatch sleeper : sleepers) {
+            if (sleepers.remove(sleeper)) {
+                sleeper.countDown();
+            }
+        }
+        executor.shutdown();
+        computationExecutor.shutdown();
+    }
+
+    synchronized Subscription schedule(Action0 action, long delay, TimeUnit unit) {
+        if (!running) {
+            return Subscriptions.unsubscribed();
+        }
+
+        // cancelled timers stay queued and are skipped, removing them from either queue is linear
+        Deadline deadline = new Deadline(nowNanos + unit.toNanos(delay));
+        deadlines.add(deadline);
+
+        timers.schedule(() -> {
+            if (deadline.live) {
+                deadline.live = false;
+                action.call();
+            }
+        }, delay, unit);
+
+        return deadline;
+    }
+
+    private Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "VirtualClock-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        participants.add(thread);
+        return thread;
+    }
+
+    private void drive() {
+        int quiescentPolls = 0;
+        long stalledSince = 0;
+        boolean stalled = false;
+        while (running) {
+            LockSupport.parkNanos(POLL_NANOS);
+
+            if (!isQuiescent()) {
+                quiescentPolls = 0;
+                stalled = false;
+            } else if (++quiescentPolls >= QUIESCENT_POLLS) {
+                quiescentPolls = 0;
+                if (advance()) {
+                    stalled = false;
+                } else if (!stalled) {
+                    stalled = true;
+                    stalledSince = System.nanoTime();
+                } else if (System.nanoTime() - stalledSince >= STALL_NANOS) {
+                    reportStall();
+                    stalled = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Every thread is parked and no deadline is left to move to: nothing will ever wake them, the scenario is deadlocked
+     * or waits on something the clock does not schedule.  The registered threads, the test thread among them, are
+     * interrupted so the test fails instead of hanging.
+     */
+    private void reportStall() {
+        StringBuilder states = new StringBuilder();
+        for (Thread thread : participants) {
+            states.append(' ').append(thread.getName()).append('=').append(thread.getState());
+        }
+        System.err.println(">>VirtualClock stalled at " + now(TimeUnit.MILLISECONDS) + " ms, every thread parked and no deadline pending:" + states);
+
+        for (Thread thread : registered) {
+            thread.interrupt();
+        }
+    }
+
+    private boolean isQuiescent() {
+        // workers queued behind a computation pool whose threads all wait on the clock cannot start before it moves
+        int waitingForPool = computationExecutor.getActiveCount() == computationExecutor.getMaximumPoolSize()
+                ? computationExecutor.getQueue().size() : 0;
+        if (pending.get() > waitingForPool) {
+            return false;
+        }
+        for (Thread thread : participants) {
+            State state = thread.getState();
+            if (state == State.RUNNABLE || state == State.BLOCKED) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return false when no deadline is pending
+     */
+    private synchronized boolean advance() {
+        Deadline next = deadlines.peek();
+        while (next != null && !next.live) {
+            deadlines.poll();
+            next = deadlines.peek();
+        }
+        if (next == null) {
+            return false;
+        }
+        nowNanos = Math.max(nowNanos, next.nanos);
+        timeline.advanceTimeTo(nowNanos, TimeUnit.NANOSECONDS);
+        return true;
+    }
+
+    private static final class Deadline implements Comparable<Deadline>, Subscription {
+        private final long nanos;
+        private volatile boolean live = true;
+
+        private Deadline(long nanos) {
+            this.nanos = nanos;
+        }
+
+        @Override
+        public void unsubscribe() {
+            live = false;
+        }
+
+        @Override
+        public boolean isUnsubscribed() {
+            return !live;
+        }
+
+        @Override
+        public int compareTo(Deadline other) {
+            return Long.compare(nanos, other.nanos);
+        }
+    }
+
+    private final class VirtualScheduler extends Scheduler {
+        private final ExecutorService executor;
+
+        private VirtualScheduler(ExecutorService executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public Worker createWorker() {
+            return new VirtualWorker(executor);
+        }
+
+        @Override
+        public long now() {
+            return VirtualClock.this.now(TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Runs its actions one at a time, in order, on the clock's threads.
+     */
+    private final class VirtualWorker extends Scheduler.Worker implements Runnable {
+
+        private final CompositeSubscription tasks = new CompositeSubscription();
+        private final ConcurrentLinkedQueue<ScheduledAction> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger wip = new AtomicInteger();
+        private final ExecutorService executor;
+
+        private VirtualWorker(ExecutorService executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public Subscription schedule(Action0 action) {
+            if (isUnsubscribed()) {
+                return Subscriptions.unsubscribed();
+            }
+
+            ScheduledAction scheduled = new ScheduledAction(action);
+            queue.offer(scheduled);
+
+            // an action queued behind a running one is the running thread's to start
+            if (wip.getAndIncrement() == 0) {
+                pending.incrementAndGet();
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    // the clock was shut down, drain on the caller so the pending count stays right
+                    run();
+                }
+            }
+            return scheduled;
+        }
+
+        @Override
+        public Subscription schedule(Action0 action, long delayTime, TimeUnit unit) {
+            if (delayTime <= 0) {
+                return schedule(action);
+            }
+            if (isUnsubscribed()) {
+                return Subscriptions.unsubscribed();
+            }
+
+            DelayedAction delayed = new DelayedAction(action);
+            delayed.timer = VirtualClock.this.schedule(delayed, delayTime, unit);
+            tasks.add(delayed.timer);
+            return Subscriptions.create(() -> tasks.remove(delayed.timer));
+        }
+
+        @Override
+        public long now() {
+            return VirtualClock.this.now(TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void run() {
+            pending.decrementAndGet();
+            do {
+                ScheduledAction scheduled = queue.poll();
+                if (!scheduled.isUnsubscribed() && !isUnsubscribed()) {
+                    try {
+                        scheduled.action.call();
+                    } catch (Throwable t) {
+                        Thread thread = Thread.currentThread();
+                        thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+                    }
+                }
+            } while (wip.decrementAndGet() > 0);
+        }
+
+        @Override
+        public void unsubscribe() {
+            tasks.unsubscribe();
+        }
+
+        private final class DelayedAction implements Action0 {
+            private final Action0 action;
+            // assigned before the clock can move, the scheduling thread is running
+            private Subscription timer;
+
+            private DelayedAction(Action0 action) {
+                this.action = action;
+            }
+
+            @Override
+            public void call() {
+                tasks.remove(timer);
+                schedule(action);
+            }
+        }
+
+        @Override
+        public boolean isUnsubscribed() {
+            return tasks.isUnsubscribed();
+        }
+    }
+
+    private static final class ScheduledAction implements Subscription {
+        private final Action0 action;
+        private volatile boolean unsubscribed;
+
+        private ScheduledAction(Action0 action) {
+            this.action = action;
+        }
+
+        @Override
+        public void unsubscribe() {
+            unsubscribed = true;
+        }
+
+        @Override
+        public boolean isUnsubscribed() {
+            return unsubscribed;
+        }
+    }
+}
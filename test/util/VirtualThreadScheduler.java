@@ -0,0 +1,44 @@
+package util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import rx.Scheduler;
+import rx.schedulers.Schedulers;
+
+/**
+ * Drop-in alternative to {@link Schedulers#io()} for blocking callables: every worker drains on a new virtual thread,
+ * so a blocked call parks a virtual thread instead of holding a platform thread.
+ *
+ * Virtual threads need Java 21, the executor is looked up reflectively so the sources still build for older releases.
+ * Check {@link #isSupported()} before calling {@link #get()}.
+ *
+ * Virtual threads are not tracked by a {@link VirtualClock}, use this scheduler in real time only.
+ */
+public final class VirtualThreadScheduler {
+
+    private static final ExecutorService EXECUTOR = newVirtualThreadPerTaskExecutor();
+    private static final Scheduler SCHEDULER = EXECUTOR != null ? Schedulers.from(EXECUTOR) : null;
+
+    private VirtualThreadScheduler() {
+    }
+
+    public static boolean isSupported() {
+        return SCHEDULER != null;
+    }
+
+    public static Scheduler get() {
+        if (SCHEDULER == null) {
+            throw new IllegalStateException("Virtual threads need Java 21, running on " + System.getProperty("java.version"));
+        }
+        return SCHEDULER;
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}